@@ -0,0 +1,60 @@
+package com.engeto.vatrates;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic datasets for benchmarks from the input file.
+ */
+public class DatasetGenerator {
+    private static final long SEED = 42L;
+
+    /**
+     * Generates a dataset by repeating the rows of a source file. Standard
+     * and reduced rates of the repeated rows are shifted by multiples of
+     * 0.5, so that the dataset has many distinct rates to sort by.
+     *
+     * @param sourceFile file the rows are taken from
+     * @param targetFile file the dataset is written to
+     * @param rows number of rows of the dataset
+     * @throws VatRatesException if a file cannot be read or written
+     */
+    public static void generate(String sourceFile, String targetFile,
+                                int rows) throws VatRatesException {
+        List<Country> source =
+                VatRatesList.importFromFile(sourceFile,
+                        Constants.getDelimiter());
+        if (source.isEmpty()) {
+            throw new VatRatesException("Prázdný zdrojový soubor: "
+                    + sourceFile);
+        }
+        Random random = new Random(SEED);
+        String delimiter = Constants.getDelimiter();
+        try (BufferedWriter writer =
+                     Files.newBufferedWriter(Path.of(targetFile))) {
+            for (int i = 0; i < rows; ++i) {
+                Country country = source.get(i % source.size());
+                BigDecimal shift = BigDecimal.valueOf(random.nextInt(9) - 4)
+                        .multiply(new BigDecimal("0.5"));
+                writer.write(country.getCodeOfCountry() + delimiter
+                        + country.getNameOfCountry() + delimiter
+                        + CountryParser.formatDecimal(
+                                country.getVatStandard().add(shift).max(
+                                        BigDecimal.ZERO)) + delimiter
+                        + CountryParser.formatDecimal(
+                                country.getVatReduced().add(shift).max(
+                                        BigDecimal.ZERO)) + delimiter
+                        + country.hasVatSpecial());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při generování dat: "
+                    + e.getLocalizedMessage());
+        }
+    }
+}
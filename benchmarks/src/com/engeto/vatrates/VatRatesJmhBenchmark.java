@@ -0,0 +1,158 @@
+package com.engeto.vatrates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of import, filter, sort and export operations over
+ * a synthetic dataset generated from the input file by
+ * {@link DatasetGenerator#generate(String, String, int)}. The dataset
+ * and the exported file are temporary, the resources directory is only
+ * read. Results are written as JSON, so runs can be compared by tools.
+ * Arguments are JMH options, e.g. "-p rows=100000" or "-rff result.json".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VatRatesJmhBenchmark {
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    private static final BigDecimal VAT_LIMIT = Constants.getVatDefault();
+    private static final int TOP_COUNT = 5;
+
+    @Param("1000000")
+    public int rows;
+
+    private Path dataFile;
+    private Path exportFile;
+    private String file;
+    private String delimiter;
+    private List<String> lines;
+    private List<Country> data;
+    private List<Country> filtered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, VatRatesException {
+        dataFile = Files.createTempFile("vat-rates-benchmark", ".csv");
+        exportFile = Files.createTempFile("vat-rates-benchmark", ".txt");
+        file = dataFile.toString();
+        delimiter = Constants.getDelimiter();
+        DatasetGenerator.generate(Constants.getInputFile(), file, rows);
+        lines = Files.readAllLines(dataFile);
+        data = VatRatesList.importFromFile(file, delimiter);
+        filtered = VatRatesList.filterByVat(data, VAT_LIMIT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dataFile);
+        Files.deleteIfExists(exportFile);
+    }
+
+    @Benchmark
+    public List<Country> importFromFile() throws VatRatesException {
+        return VatRatesList.importFromFile(file, delimiter);
+    }
+
+    @Benchmark
+    public List<Country> importFromFileParallel() throws VatRatesException {
+        return VatRatesList.importFromFileParallel(file, delimiter);
+    }
+
+    @Benchmark
+    public void parseCountry(Blackhole blackhole) throws VatRatesException {
+        for (String line : lines) {
+            blackhole.consume(VatRatesList.parseCountry(line, delimiter));
+        }
+    }
+
+    @Benchmark
+    public List<Country> filterByVat() {
+        return VatRatesList.filterByVat(data, VAT_LIMIT);
+    }
+
+    @Benchmark
+    public Map<Boolean, List<Country>> filterByVatOnePass() {
+        return VatRatesList.filterByVatOnePass(data, VAT_LIMIT);
+    }
+
+    @Benchmark
+    public List<Country> sortByVatStdDescending() {
+        return VatRatesList.sortByVatStdDescending(data);
+    }
+
+    @Benchmark
+    public List<Country> getTopByVat() {
+        return VatRatesList.getTopByVat(data, VAT_LIMIT, TOP_COUNT);
+    }
+
+    @Benchmark
+    public List<Country> sortByCode() {
+        return VatRatesList.sortByCode(data);
+    }
+
+    @Benchmark
+    public List<Country> subtractFilteredVat() {
+        return VatRatesList.subtractFilteredVat(data, filtered);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        try (FileChannel channel = FileChannel.open(exportFile,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            VatRatesExporter.export(new VatRatesIndex(data), VAT_LIMIT,
+                    ExportFormat.TEXT, channel);
+            return channel.size();
+        }
+    }
+
+    /**
+     * Runs the benchmarks of this class. Unless the arguments say
+     * otherwise, results are written as JSON to "jmh-result.json".
+     */
+    public static void main(String[] args)
+            throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat()
+                        .orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse(DEFAULT_RESULT_FILE));
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(VatRatesJmhBenchmark.class.getName());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,327 @@
+package com.engeto.vatrates;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a list of countries that is loaded by memory-mapping
+ * with no parsing of records. Layout, all numbers big-endian:
+ * - header: magic, version, number of rows, size, last modification
+ *   time and CRC32 of the source file, CRC32 of the body, length of names;
+ * - body: special VAT bitset, standard VAT and reduced VAT in basis points,
+ *   encoded codes of countries, offsets of names, names in UTF-8.
+ * A snapshot is stale when the source file has a different size, last
+ * modification time or CRC32, then the source file is imported instead.
+ * The CRC32 catches edits that keep the size within the same millisecond
+ * and modification times restored by copy tools, at the cost of reading
+ * the source file once per load, which is still far cheaper than parsing.
+ */
+public class BinarySnapshot {
+    private static final Logger LOGGER = Logger.getLogger("VAT rates");
+    private static final int MAGIC = 0x56415453;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8 + 8 + 4;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * State of a source file a snapshot is made of.
+     *
+     * @param size size of the file in bytes
+     * @param lastModified last modification time in milliseconds
+     * @param checksum CRC32 of the content of the file
+     */
+    public record SourceState(long size, long lastModified, long checksum) {
+        /**
+         * Reads the state of a source file.
+         *
+         * @throws VatRatesException if the file cannot be read
+         */
+        public static SourceState read(String sourceFile)
+                throws VatRatesException {
+            Path source = Path.of(sourceFile);
+            try (FileChannel channel = FileChannel.open(source,
+                    StandardOpenOption.READ)) {
+                long lastModified =
+                        Files.getLastModifiedTime(source).toMillis();
+                return new SourceState(channel.size(), lastModified,
+                        checksum(channel));
+            } catch (IOException e) {
+                throw new VatRatesException("Chyba při načítání souboru: "
+                        + e.getLocalizedMessage());
+            }
+        }
+
+        private static long checksum(FileChannel channel) throws IOException {
+            CRC32 checksum = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+            return checksum.getValue();
+        }
+    }
+
+    /**
+     * Writes a snapshot of a table of countries. The snapshot is written
+     * to a temporary file first and then moved in place. The state
+     * of the source file must be read before the table is imported,
+     * so that a change of the source file during the import makes
+     * the snapshot stale.
+     *
+     * @param table table of countries to be written
+     * @param snapshotFile path to the snapshot
+     * @param source state of the source file before the import
+     * @throws VatRatesException if the snapshot cannot be written
+     */
+    public static void write(VatRatesTable table, String snapshotFile,
+                             SourceState source)
+            throws VatRatesException {
+        VatRatesMetrics.timed("writeSnapshot", () -> {
+            try {
+                ByteBuffer buffer = encode(table, source);
+                Path target = Path.of(snapshotFile);
+                Path temporary = target.resolveSibling(
+                        target.getFileName() + ".tmp");
+                try (FileChannel channel = FileChannel.open(temporary,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                Files.move(temporary, target,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new VatRatesException("Chyba při zápisu snapshotu: "
+                        + e.getLocalizedMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads a snapshot into a table of countries.
+     *
+     * @param snapshotFile path to the snapshot
+     * @return table of countries
+     * @throws VatRatesException if the snapshot cannot be read or is not
+     *                           valid
+     */
+    public static VatRatesTable load(String snapshotFile)
+            throws VatRatesException {
+        return VatRatesMetrics.timed("loadSnapshot", () -> {
+            try (FileChannel channel = FileChannel.open(Path.of(snapshotFile),
+                    StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return decode(buffer);
+            } catch (IOException e) {
+                throw new VatRatesException(
+                        "Chyba při načítání snapshotu: "
+                                + e.getLocalizedMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads a snapshot if it is valid and up to date with the source file.
+     * Otherwise imports the source file and writes a new snapshot of it.
+     *
+     * @param snapshotFile path to the snapshot
+     * @param sourceFile path to the source file
+     * @param delimiter delimiter of fields of the source file
+     * @return table of countries
+     * @throws VatRatesException if the source file cannot be imported
+     */
+    public static VatRatesTable loadOrImport(String snapshotFile,
+                                             String sourceFile,
+                                             String delimiter)
+            throws VatRatesException {
+        if (isUpToDate(snapshotFile, sourceFile)) {
+            try {
+                return load(snapshotFile);
+            } catch (VatRatesException e) {
+                    // Falls back to the source file below.
+            }
+        }
+        SourceState source = SourceState.read(sourceFile);
+        List<Country> listOfCountries =
+                VatRatesList.importFromFile(sourceFile, delimiter);
+        VatRatesTable table;
+        try {
+            table = VatRatesTable.of(listOfCountries);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new VatRatesException("Data nelze uložit do snapshotu: "
+                    + e.getLocalizedMessage());
+        }
+        try {
+            write(table, snapshotFile, source);
+        } catch (VatRatesException e) {
+            LOGGER.log(Level.WARNING, e.getClass().getName() + ": "
+                    + e.getLocalizedMessage());
+        }
+        return table;
+    }
+
+    /**
+     * Checks the header of a snapshot against the source file. The CRC32
+     * of the source file is computed only if its size and last
+     * modification time match.
+     */
+    public static boolean isUpToDate(String snapshotFile,
+                                     String sourceFile) {
+        Path snapshot = Path.of(snapshotFile);
+        Path source = Path.of(sourceFile);
+        try (FileChannel channel = FileChannel.open(snapshot,
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Reads the whole header.
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                    || header.getInt() != MAGIC
+                    || header.getInt() != VERSION) {
+                return false;
+            }
+            header.getInt();
+            FileTime lastModified = Files.getLastModifiedTime(source);
+            return header.getLong() == Files.size(source)
+                    && header.getLong() == lastModified.toMillis()
+                    && header.getLong()
+                            == SourceState.read(sourceFile).checksum();
+        } catch (IOException | VatRatesException e) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer encode(VatRatesTable table,
+                                     SourceState source) {
+        int size = table.size();
+        byte[][] names = new byte[size][];
+        int namesLength = 0;
+        for (int i = 0; i < size; ++i) {
+            names[i] = table.getNameOfCountry(i)
+                    .getBytes(StandardCharsets.UTF_8);
+            namesLength += names[i].length;
+        }
+        int words = (size + Long.SIZE - 1) >>> 6;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + words * 8
+                + size * (4 + 4 + 2) + (size + 1) * 4 + namesLength);
+        buffer.position(HEADER_SIZE);
+
+        long[] vatSpecial = new long[words];
+        for (int i = 0; i < size; ++i) {
+            if (table.hasVatSpecial(i)) {
+                vatSpecial[i >>> 6] |= 1L << i;
+            }
+        }
+        buffer.asLongBuffer().put(vatSpecial);
+        buffer.position(buffer.position() + words * 8);
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(table.getVatStandardBasisPoints(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(table.getVatReducedBasisPoints(i));
+        }
+        for (int i = 0; i < size; ++i) {
+            buffer.putShort(table.getCode(i));
+        }
+        int offset = 0;
+        for (int i = 0; i < size; ++i) {
+            buffer.putInt(offset);
+            offset += names[i].length;
+        }
+        buffer.putInt(offset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), HEADER_SIZE,
+                buffer.capacity() - HEADER_SIZE);
+        buffer.position(0);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(size)
+                .putLong(source.size())
+                .putLong(source.lastModified())
+                .putLong(source.checksum())
+                .putLong(checksum.getValue())
+                .putInt(namesLength);
+        buffer.position(0);
+        return buffer;
+    }
+
+    private static VatRatesTable decode(ByteBuffer buffer)
+            throws VatRatesException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new VatRatesException(
+                    "Neplatný snapshot: chybná hlavička");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new VatRatesException("Neplatný snapshot: verze "
+                    + version);
+        }
+        int size = buffer.getInt();
+        buffer.getLong();
+        buffer.getLong();
+        buffer.getLong();
+        long expectedChecksum = buffer.getLong();
+        int namesLength = buffer.getInt();
+        int words = (size + Long.SIZE - 1) >>> 6;
+        long bodyLength = (long) words * 8 + (long) size * (4 + 4 + 2)
+                + (long) (size + 1) * 4 + namesLength;
+        if (size < 0 || namesLength < 0
+                || bodyLength != buffer.remaining()) {
+            throw new VatRatesException("Neplatný snapshot: chybná délka");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate());
+        if (checksum.getValue() != expectedChecksum) {
+            throw new VatRatesException("Neplatný snapshot: chybný "
+                    + "kontrolní součet");
+        }
+
+        long[] vatSpecial = new long[words];
+        buffer.asLongBuffer().get(vatSpecial);
+        buffer.position(buffer.position() + words * 8);
+        int[] vatStandard = new int[size];
+        buffer.asIntBuffer().get(vatStandard);
+        buffer.position(buffer.position() + size * 4);
+        int[] vatReduced = new int[size];
+        buffer.asIntBuffer().get(vatReduced);
+        buffer.position(buffer.position() + size * 4);
+        short[] codes = new short[size];
+        buffer.asShortBuffer().get(codes);
+        buffer.position(buffer.position() + size * 2);
+        int[] nameOffsets = new int[size + 1];
+        buffer.asIntBuffer().get(nameOffsets);
+        buffer.position(buffer.position() + (size + 1) * 4);
+        byte[] namesBytes = new byte[namesLength];
+        buffer.get(namesBytes);
+        String[] names = new String[size];
+        for (int i = 0; i < size; ++i) {
+            names[i] = new String(namesBytes, nameOffsets[i],
+                    nameOffsets[i + 1] - nameOffsets[i],
+                    StandardCharsets.UTF_8);
+        }
+        return new VatRatesTable(size, codes, names, vatStandard, vatReduced,
+                vatSpecial);
+    }
+}
@@ -0,0 +1,300 @@
+package com.engeto.vatrates;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Imports countries from a file in parallel. The file is memory-mapped
+ * in chunks aligned to the start of lines, the chunks are parsed on
+ * the common fork-join pool and merged in the original order of lines.
+ * Lines end at "\n", "\r" or "\r\n" as with BufferedReader, so the lines
+ * and their numbers are the same as of the sequential import. A strict import
+ * stops at the first invalid line, a lenient one skips invalid lines
+ * and collects their errors.
+ */
+class ChunkedImporter {
+    private static final long CHUNK_SIZE = 8L << 20;
+    private static final int BOUNDARY_BUFFER_SIZE = 4096;
+    private static final int STRICT = -1;
+
+    static List<Country> importFromFile(String file, String delimiter)
+            throws VatRatesException {
+        try (FileChannel channel = FileChannel.open(Path.of(file),
+                StandardOpenOption.READ)) {
+            return merge(forkChunks(channel, delimiter, STRICT));
+        } catch (IOException | UncheckedIOException e) {
+            throw new VatRatesException("Chyba při načítání souboru: "
+                    + e.getLocalizedMessage());
+        }
+    }
+
+    static ImportResult importFromFileLenient(String file, String delimiter,
+                                              int maxErrors)
+            throws VatRatesException {
+        try (FileChannel channel = FileChannel.open(Path.of(file),
+                StandardOpenOption.READ)) {
+            return mergeLenient(forkChunks(channel, delimiter, maxErrors),
+                    maxErrors);
+        } catch (IOException | UncheckedIOException e) {
+            throw new VatRatesException("Chyba při načítání souboru: "
+                    + e.getLocalizedMessage());
+        }
+    }
+
+    private static List<ChunkTask> forkChunks(FileChannel channel,
+                                              String delimiter,
+                                              int maxErrors)
+            throws IOException {
+        List<Long> bounds = splitToChunks(channel, CHUNK_SIZE);
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); ++i) {
+            ChunkTask task = new ChunkTask(channel, bounds.get(i),
+                    bounds.get(i + 1), delimiter, maxErrors);
+            task.fork();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Joins parsed chunks in their order. Line numbers of chunks are relative,
+     * so they are shifted by the number of lines of all preceding chunks.
+     *
+     * @throws VatRatesException of the first invalid line of the file
+     */
+    private static List<Country> merge(List<ChunkTask> tasks)
+            throws VatRatesException {
+        List<Country> list = new ArrayList<>();
+        long lineOffset = 0L;
+        for (ChunkTask task : tasks) {
+            Chunk chunk = task.join();
+            if (chunk.error() != null) {
+                VatRatesMetrics.increment("parseErrors");
+                tasks.forEach(other -> other.cancel(false));
+                throw new VatRatesException(
+                        chunk.error().getLocalizedMessage()
+                        + ", řádek souboru č. "
+                        + (lineOffset + chunk.lines()));
+            }
+            list.addAll(chunk.countries());
+            lineOffset += chunk.lines();
+        }
+        return list;
+    }
+
+    /**
+     * Joins parsed chunks in their order and keeps the first errors
+     * of all chunks up to the limit. Each chunk keeps up to the limit
+     * of its own errors, so the first errors of the file are never lost.
+     */
+    private static ImportResult mergeLenient(List<ChunkTask> tasks,
+                                             int maxErrors) {
+        List<Country> list = new ArrayList<>();
+        List<ImportError> errors = new ArrayList<>();
+        long errorCount = 0L;
+        long lineOffset = 0L;
+        for (ChunkTask task : tasks) {
+            Chunk chunk = task.join();
+            list.addAll(chunk.countries());
+            for (ImportError error : chunk.errors()) {
+                if (errors.size() == maxErrors) {
+                    break;
+                }
+                errors.add(new ImportError(lineOffset + error.line(),
+                        error.column(), error.reason()));
+            }
+            errorCount += chunk.errorCount();
+            lineOffset += chunk.lines();
+        }
+        return new ImportResult(list, errors, errorCount);
+    }
+
+    /**
+     * Splits a file into chunks of about the passed size. Each chunk starts
+     * at the beginning of a line.
+     *
+     * @return positions of chunk boundaries including 0 and the file size
+     */
+    static List<Long> splitToChunks(FileChannel channel, long chunkSize)
+            throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = chunkSize;
+        while (position < size) {
+            long boundary = nextLineStart(channel, position, size);
+            if (boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = boundary + chunkSize;
+        }
+        if (size > 0) {
+            bounds.add(size);
+        }
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position,
+                                      long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; ++i) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return offset + i + 1;
+                }
+                if (b == '\r') {
+                    long next = offset + i + 1;
+                    boolean isFollowedByNewline = i + 1 < read
+                            ? buffer.get(i + 1) == '\n'
+                            : next < size && readByte(channel, next) == '\n';
+                    return isFollowedByNewline ? next + 1 : next;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static byte readByte(FileChannel channel, long position)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    /**
+     * Result of parsing a chunk. If a strict parsing failed, lines holds
+     * the relative number of the invalid line. Errors of a lenient parsing
+     * have relative line numbers.
+     */
+    private record Chunk(List<Country> countries, long lines,
+                         VatRatesException error, List<ImportError> errors,
+                         long errorCount) {
+    }
+
+    /**
+     * Parses a chunk straight from its mapped buffer. Lines are found
+     * by scanning the bytes and every line is decoded into a char buffer
+     * reused for the whole chunk, so the chunk is never copied as a whole.
+     */
+    private static class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+        private static final int INITIAL_LINE_CAPACITY = 256;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final String delimiter;
+        private final int maxErrors;
+        private transient CharsetDecoder decoder;
+        private transient CharBuffer line;
+
+        ChunkTask(FileChannel channel, long start, long end,
+                  String delimiter, int maxErrors) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.delimiter = delimiter;
+            this.maxErrors = maxErrors;
+        }
+
+        @Override
+        protected Chunk compute() {
+            MappedByteBuffer data;
+            try {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            line = CharBuffer.allocate(INITIAL_LINE_CAPACITY);
+
+            List<Country> countries = new ArrayList<>();
+            List<ImportError> errors = new ArrayList<>();
+            long errorCount = 0L;
+            long lines = 0L;
+            int length = data.limit();
+            int lineStart = 0;
+            while (lineStart < length) {
+                int lineEnd = lineStart;
+                while (lineEnd < length && data.get(lineEnd) != '\n'
+                        && data.get(lineEnd) != '\r') {
+                    ++lineEnd;
+                }
+                int next = lineEnd + 1;
+                if (next < length && data.get(lineEnd) == '\r'
+                        && data.get(next) == '\n') {
+                    ++next;
+                }
+                ++lines;
+                CharBuffer record = decode(data, lineStart, lineEnd);
+                try {
+                    countries.add(CountryParser.parseCountry(record, 0,
+                            record.length(), delimiter));
+                } catch (VatRatesParseException e) {
+                    if (maxErrors == STRICT) {
+                        return new Chunk(countries, lines, e, errors, 0L);
+                    }
+                    VatRatesMetrics.increment("parseErrors");
+                    if (errors.size() < maxErrors) {
+                        errors.add(new ImportError(lines, e.getColumn(),
+                                e.getLocalizedMessage()));
+                    }
+                    ++errorCount;
+                }
+                lineStart = next;
+            }
+            return new Chunk(countries, lines, null, errors, errorCount);
+        }
+
+        /**
+         * Decodes a line of the chunk into the reused char buffer. Lines
+         * in ASCII are copied byte by byte without the decoder.
+         *
+         * @return the reused buffer holding just the line
+         */
+        private CharBuffer decode(ByteBuffer data, int from, int to) {
+            int length = to - from;
+            if (line.capacity() < length) {
+                line = CharBuffer.allocate(
+                        Math.max(length, line.capacity() * 2));
+            }
+            line.clear();
+            char[] chars = line.array();
+            for (int i = 0; i < length; ++i) {
+                byte b = data.get(from + i);
+                if (b < 0) {
+                    decoder.reset();
+                    decoder.decode(data.slice(from, length), line, true);
+                    decoder.flush(line);
+                    return line.flip();
+                }
+                chars[i] = (char) b;
+            }
+            return line.limit(length);
+        }
+    }
+}
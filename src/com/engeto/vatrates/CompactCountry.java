@@ -0,0 +1,109 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable variant of {@link Country} intended for filtering large lists.
+ * VAT rates are stored as basis points (hundredths of a percent), e.g. 21.5 %
+ * as 2150, and the code of the country is encoded by {@link CountryCodes}.
+ * Comparisons of rates therefore need no BigDecimal arithmetic.
+ *
+ * @param code encoded code of the country
+ * @param nameOfCountry name of the country
+ * @param vatStandardBasisPoints standard VAT in basis points
+ * @param vatReducedBasisPoints reduced VAT in basis points
+ * @param hasVatSpecial whether the country uses a special VAT
+ */
+public record CompactCountry(short code, String nameOfCountry,
+                             int vatStandardBasisPoints,
+                             int vatReducedBasisPoints,
+                             boolean hasVatSpecial) {
+    private static final int SCALE = 2;
+    private static final BigDecimal MAX_BASIS_POINTS =
+            BigDecimal.valueOf(Integer.MAX_VALUE);
+    private static final BigDecimal MIN_BASIS_POINTS =
+            BigDecimal.valueOf(Integer.MIN_VALUE);
+
+    /**
+     * Converts a country to its compact variant.
+     *
+     * @throws IllegalArgumentException if the code of the country is not two
+     *                                  uppercase letters
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public static CompactCountry of(Country country) {
+        return new CompactCountry(
+                CountryCodes.encode(country.getCodeOfCountry()),
+                country.getNameOfCountry(),
+                toBasisPoints(country.getVatStandard()),
+                toBasisPoints(country.getVatReduced()),
+                country.hasVatSpecial());
+    }
+
+    public Country toCountry() {
+        return new Country(getCodeOfCountry(), nameOfCountry,
+                getVatStandard(), getVatReduced(), hasVatSpecial);
+    }
+
+    public String getCodeOfCountry() {
+        return CountryCodes.decode(code);
+    }
+
+    public BigDecimal getVatStandard() {
+        return toBigDecimal(vatStandardBasisPoints);
+    }
+
+    public BigDecimal getVatReduced() {
+        return toBigDecimal(vatReducedBasisPoints);
+    }
+
+    /**
+     * Tells whether the country is over the limit and has no special VAT,
+     * the same condition as {@link VatRatesList#filterByVat} uses.
+     *
+     * @param vatStdLimitBasisPoints limit converted by
+     *                               {@link #limitToBasisPoints(BigDecimal)}
+     */
+    public boolean isOverLimit(int vatStdLimitBasisPoints) {
+        return vatStandardBasisPoints > vatStdLimitBasisPoints
+                && !hasVatSpecial;
+    }
+
+    /**
+     * Converts a rate to basis points without any loss.
+     *
+     * @throws ArithmeticException if the rate has more than two decimal
+     *                             places or does not fit into an int
+     */
+    public static int toBasisPoints(BigDecimal rate) {
+        return rate.movePointRight(SCALE).intValueExact();
+    }
+
+    /**
+     * Converts basis points back to a rate with no trailing zeros, so 2100
+     * becomes 21 and 950 becomes 9.5, as they are written in the file.
+     */
+    public static BigDecimal toBigDecimal(int basisPoints) {
+        BigDecimal rate =
+                BigDecimal.valueOf(basisPoints, SCALE).stripTrailingZeros();
+        return rate.scale() < 0 ? rate.setScale(0) : rate;
+    }
+
+    /**
+     * Converts a limit of any precision to basis points rounded down. For
+     * whole basis points x it holds that x > limit if and only if
+     * x > limitToBasisPoints(limit).
+     */
+    public static int limitToBasisPoints(BigDecimal vatStdLimit) {
+        BigDecimal limit = vatStdLimit.movePointRight(SCALE)
+                .setScale(0, RoundingMode.FLOOR);
+        if (limit.compareTo(MAX_BASIS_POINTS) > 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (limit.compareTo(MIN_BASIS_POINTS) < 0) {
+            return Integer.MIN_VALUE;
+        }
+        return limit.intValue();
+    }
+}
@@ -1,6 +1,7 @@
 package com.engeto.vatrates;
 
 import java.math.BigDecimal;
+import java.net.InetAddress;
 import java.nio.file.FileSystems;
 import java.text.NumberFormat;
 import java.util.Locale;
@@ -11,13 +12,17 @@ import java.util.Locale;
 public class Constants {
     private static final String DELIMITER = "\t";
     private static final Locale LOCALE = Locale.of("cs", "CZ");
-    private static final NumberFormat NUMBER_FORMAT =
-            NumberFormat.getInstance(getLocale());
     private static final String PATH_SEPARATOR =
             FileSystems.getDefault().getSeparator();
     private static final String RESOURCES_PATH = "." + getPathSeparator()
             + "res" + getPathSeparator();
     private static final String INPUT_FILE = getResourcesPath() + "vat-eu.csv";
+    private static final int QUERY_CACHE_CAPACITY = 64;
+    private static final InetAddress SERVER_ADDRESS =
+            InetAddress.getLoopbackAddress();
+    private static final int SERVER_PORT = 8080;
+    private static final String SNAPSHOT_FILE =
+            getResourcesPath() + "vat-eu.bin";
     private static final String TASK_SEPARATOR = "---";
     private static final BigDecimal VAT_DEFAULT = new BigDecimal(20);
 
@@ -34,18 +39,47 @@ public class Constants {
         return LOCALE;
     }
 
+    /**
+     * Gets a new number format of the defined Locale.
+     *
+     * @deprecated NumberFormat is not thread-safe and costly to create,
+     * use {@link CountryParser#formatRate(BigDecimal)}, which formats
+     * the same way
+     */
+    @Deprecated
     public static NumberFormat getNumberFormat() {
-        return NUMBER_FORMAT;
+        return NumberFormat.getInstance(getLocale());
     }
 
     public static String getPathSeparator() {
         return PATH_SEPARATOR;
     }
 
+    public static int getQueryCacheCapacity() {
+        return QUERY_CACHE_CAPACITY;
+    }
+
     public static String getResourcesPath() {
         return RESOURCES_PATH;
     }
 
+    /**
+     * Gets the default address the server listens on. It is the loopback
+     * address, so the server is not reachable from the network unless
+     * another address is configured.
+     */
+    public static InetAddress getServerAddress() {
+        return SERVER_ADDRESS;
+    }
+
+    public static int getServerPort() {
+        return SERVER_PORT;
+    }
+
+    public static String getSnapshotFile() {
+        return SNAPSHOT_FILE;
+    }
+
     public static String getTaskSeparator() {
         return TASK_SEPARATOR;
     }
@@ -1,9 +1,15 @@
 package com.engeto.vatrates;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
 
 /**
- * Represents VAT types used in a specific country.
+ * Represents VAT types used in a specific country. Besides the standard
+ * and reduced rates a country may have rates of other categories,
+ * see {@link RateCategory}.
  */
 public class Country {
 
@@ -13,6 +19,7 @@ public class Country {
     private String nameOfCountry;
     private BigDecimal vatReduced;
     private BigDecimal vatStandard;
+    private EnumMap<RateCategory, BigDecimal> categoryRates;
     //endregion
 
     public Country(String codeOfCountry, String nameOfCountry,
@@ -25,6 +32,23 @@ public class Country {
         this.hasVatSpecial = hasVatSpecial;
     }
 
+    /**
+     * Creates a country with rates of other categories.
+     *
+     * @param categoryRates rates of categories other than the standard
+     *                      and reduced one
+     * @throws IllegalArgumentException if the standard or reduced rate
+     *                                  is passed among the categories
+     */
+    public Country(String codeOfCountry, String nameOfCountry,
+                   BigDecimal vatStandard, BigDecimal vatReduced,
+                   boolean hasVatSpecial,
+                   Map<RateCategory, BigDecimal> categoryRates) {
+        this(codeOfCountry, nameOfCountry, vatStandard, vatReduced,
+                hasVatSpecial);
+        categoryRates.forEach(this::putCategoryRate);
+    }
+
     //region Getters and Setters
     public String getCodeOfCountry() {
         return codeOfCountry;
@@ -65,16 +89,136 @@ public class Country {
     public void setVatStandard(BigDecimal vatStandard) {
         this.vatStandard = vatStandard;
     }
+
+    /**
+     * Gets rates of categories other than the standard and reduced one.
+     *
+     * @return unmodifiable map of rates, empty if there are none
+     */
+    public Map<RateCategory, BigDecimal> getCategoryRates() {
+        return categoryRates == null ? Map.of()
+                : Collections.unmodifiableMap(categoryRates);
+    }
+
+    /**
+     * Sets the rate of a category other than the standard and reduced one.
+     *
+     * @param rate rate of the category or null to remove it
+     * @throws IllegalArgumentException if the category is the standard
+     *                                  or reduced rate
+     */
+    public void setCategoryRate(RateCategory category, BigDecimal rate) {
+        putCategoryRate(category, rate);
+    }
+
+    private void putCategoryRate(RateCategory category, BigDecimal rate) {
+        if (category.isColumn()) {
+            throw new IllegalArgumentException("Sazba " + category.getKey()
+                    + " se nastavuje samostatně");
+        }
+        if (rate == null) {
+            if (categoryRates != null) {
+                categoryRates.remove(category);
+            }
+            return;
+        }
+        if (categoryRates == null) {
+            categoryRates = new EnumMap<>(RateCategory.class);
+        }
+        categoryRates.put(category, rate);
+    }
     //endregion
 
+    /**
+     * Gets the rate of a category. If the country has no rate
+     * of the category, the rate of its fallback category is returned,
+     * so there is always a rate.
+     */
+    public BigDecimal getVatRate(RateCategory category) {
+        switch (category) {
+            case STANDARD -> {
+                return getVatStandard();
+            }
+            case REDUCED -> {
+                return getVatReduced();
+            }
+            default -> {
+                BigDecimal rate = getCategoryRates().get(category);
+                return rate != null ? rate
+                        : getVatRate(category.getFallback());
+            }
+        }
+    }
+
     public String getDescription() {
         return getNameOfCountry() + " (" + getCodeOfCountry() + "): "
-                + Constants.getNumberFormat().format(getVatStandard()) + " %";
+                + CountryParser.formatRate(getVatStandard()) + " %";
     }
 
     public String getDescriptionVerbose() {
         return getNameOfCountry() + " (" + getCodeOfCountry() + "): "
-                + Constants.getNumberFormat().format(getVatStandard()) + " % ("
-                + Constants.getNumberFormat().format(getVatReduced()) + " %)";
+                + CountryParser.formatRate(getVatStandard()) + " % ("
+                + CountryParser.formatRate(getVatReduced()) + " %)";
+    }
+
+    /**
+     * Compares countries by value. Rates are compared numerically, so 21
+     * equals 21.0. As the class is mutable, a country must not be modified
+     * while it is stored in a hash-based collection.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Country country)) {
+            return false;
+        }
+        return hasVatSpecial() == country.hasVatSpecial()
+                && Objects.equals(getCodeOfCountry(),
+                        country.getCodeOfCountry())
+                && Objects.equals(getNameOfCountry(),
+                        country.getNameOfCountry())
+                && equalRates(getVatStandard(), country.getVatStandard())
+                && equalRates(getVatReduced(), country.getVatReduced())
+                && equalCategoryRates(getCategoryRates(),
+                        country.getCategoryRates());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hash(getCodeOfCountry(), getNameOfCountry(),
+                normalizeRate(getVatStandard()),
+                normalizeRate(getVatReduced()), hasVatSpecial());
+        for (Map.Entry<RateCategory, BigDecimal> entry
+                : getCategoryRates().entrySet()) {
+            hash += entry.getKey().ordinal()
+                    ^ Objects.hashCode(normalizeRate(entry.getValue()));
+        }
+        return hash;
+    }
+
+    private static boolean equalCategoryRates(
+            Map<RateCategory, BigDecimal> rates,
+            Map<RateCategory, BigDecimal> other) {
+        if (rates.size() != other.size()) {
+            return false;
+        }
+        for (Map.Entry<RateCategory, BigDecimal> entry : rates.entrySet()) {
+            if (!other.containsKey(entry.getKey()) || !equalRates(
+                    entry.getValue(), other.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalRates(BigDecimal rate, BigDecimal other) {
+        return rate == null ? other == null
+                : other != null && rate.compareTo(other) == 0;
+    }
+
+    private static BigDecimal normalizeRate(BigDecimal rate) {
+        return rate == null ? null : rate.stripTrailingZeros();
     }
 }
@@ -0,0 +1,55 @@
+package com.engeto.vatrates;
+
+/**
+ * Encodes two-letter codes of countries, e.g. "CZ", as numbers from 0
+ * to {@link #COUNT} - 1, so they can be stored in a short and used directly
+ * as indexes of arrays. Decoded codes are interned and shared.
+ */
+public class CountryCodes {
+    public static final int COUNT = 26 * 26;
+    private static final String[] CODES = new String[COUNT];
+
+    static {
+        for (int i = 0; i < COUNT; ++i) {
+            CODES[i] = String.valueOf(new char[] {
+                    (char) ('A' + i / 26), (char) ('A' + i % 26)}).intern();
+        }
+    }
+
+    public static boolean isValid(String codeOfCountry) {
+        return codeOfCountry != null && codeOfCountry.length() == 2
+                && isLetter(codeOfCountry.charAt(0))
+                && isLetter(codeOfCountry.charAt(1));
+    }
+
+    /**
+     * Encodes a code of a country.
+     *
+     * @param codeOfCountry two uppercase letters
+     * @return number from 0 to {@link #COUNT} - 1
+     * @throws IllegalArgumentException if the code is not two uppercase
+     *                                  letters
+     */
+    public static short encode(String codeOfCountry) {
+        if (!isValid(codeOfCountry)) {
+            throw new IllegalArgumentException("Neplatný kód země: "
+                    + codeOfCountry);
+        }
+        return (short) ((codeOfCountry.charAt(0) - 'A') * 26
+                + (codeOfCountry.charAt(1) - 'A'));
+    }
+
+    /**
+     * Decodes a code of a country without creating a new String.
+     *
+     * @param code number from 0 to {@link #COUNT} - 1
+     * @return interned code of the country
+     */
+    public static String decode(short code) {
+        return CODES[code];
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+}
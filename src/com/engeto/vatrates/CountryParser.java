@@ -0,0 +1,319 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+/**
+ * Parses records of countries split by a delimiter. Works directly over
+ * a character sequence, so no Scanner, regular expressions or intermediate
+ * tokens are needed for the numeric and boolean values.
+ */
+public class CountryParser {
+    private static final DecimalFormat NUMBER_FORMAT =
+            (DecimalFormat) NumberFormat.getInstance(Constants.getLocale());
+    private static final DecimalFormatSymbols SYMBOLS =
+            NUMBER_FORMAT.getDecimalFormatSymbols();
+    private static final char DECIMAL_SEPARATOR =
+            SYMBOLS.getDecimalSeparator();
+    private static final char GROUPING_SEPARATOR =
+            SYMBOLS.getGroupingSeparator();
+    private static final char MINUS_SIGN = SYMBOLS.getMinusSign();
+    private static final int GROUPING_SIZE = NUMBER_FORMAT.getGroupingSize();
+    private static final int MAX_FRACTION_DIGITS =
+            NUMBER_FORMAT.getMaximumFractionDigits();
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Parses a country from a part of a character sequence that holds one
+     * record: code, name, standard VAT, reduced VAT and the special VAT flag.
+     * The flag may be followed by rates of other categories written
+     * as "category=rate", see {@link RateCategory}. Any other fields
+     * following the flag are ignored.
+     *
+     * @param data character sequence containing the record
+     * @param start index of the first character of the record
+     * @param end index after the last character of the record
+     * @param delimiter delimiter of fields
+     * @return parsed country
+     * @throws VatRatesParseException if a field is missing or invalid
+     */
+    public static Country parseCountry(CharSequence data, int start, int end,
+                                       String delimiter)
+            throws VatRatesParseException {
+        int codeEnd = nextDelimiter(data, start, end, delimiter, 1);
+        String codeOfCountry = data.subSequence(start, codeEnd).toString();
+
+        int nameStart = codeEnd + delimiter.length();
+        int nameEnd = nextDelimiter(data, nameStart, end, delimiter, 2);
+        String nameOfCountry = data.subSequence(nameStart, nameEnd).toString();
+
+        int vatStandardStart = nameEnd + delimiter.length();
+        int vatStandardEnd = nextDelimiter(data, vatStandardStart, end,
+                delimiter, 3);
+        BigDecimal vatStandard =
+                parseDecimal(data, vatStandardStart, vatStandardEnd, 3);
+
+        int vatReducedStart = vatStandardEnd + delimiter.length();
+        int vatReducedEnd = nextDelimiter(data, vatReducedStart, end,
+                delimiter, 4);
+        BigDecimal vatReduced =
+                parseDecimal(data, vatReducedStart, vatReducedEnd, 4);
+
+        int vatSpecialStart = vatReducedEnd + delimiter.length();
+        int vatSpecialEnd = indexOf(data, vatSpecialStart, end, delimiter);
+        boolean hasVatSpecial =
+                parseBoolean(data, vatSpecialStart, vatSpecialEnd, 5);
+
+        Country country = new Country(codeOfCountry, nameOfCountry,
+                vatStandard, vatReduced, hasVatSpecial);
+        int column = 6;
+        for (int fieldEnd = vatSpecialEnd; fieldEnd < end; ++column) {
+            int fieldStart = fieldEnd + delimiter.length();
+            fieldEnd = indexOf(data, fieldStart, end, delimiter);
+            parseCategoryRate(country, data, fieldStart, fieldEnd, column);
+        }
+        return country;
+    }
+
+    /**
+     * Parses a field "category=rate" into the country. Fields without
+     * the equals sign are skipped.
+     *
+     * @throws VatRatesParseException if the category is unknown or appears
+     *                                twice or the rate is invalid
+     */
+    private static void parseCategoryRate(Country country, CharSequence data,
+                                          int start, int end, int column)
+            throws VatRatesParseException {
+        int separator = start;
+        while (separator < end && data.charAt(separator) != '=') {
+            ++separator;
+        }
+        if (separator == end) {
+            return;
+        }
+        CharSequence key = data.subSequence(start, separator);
+        RateCategory category = RateCategory.ofKey(key);
+        if (category == null) {
+            throw new VatRatesParseException("Neznámá kategorie sazby \""
+                    + key + "\" ve sloupci č. " + column, column);
+        }
+        if (country.getCategoryRates().containsKey(category)) {
+            throw new VatRatesParseException("Opakovaná kategorie sazby \""
+                    + key + "\" ve sloupci č. " + column, column);
+        }
+        country.setCategoryRate(category,
+                parseDecimal(data, separator + 1, end, column));
+    }
+
+    /**
+     * Formats rates of other categories of a country as trailing fields
+     * read by {@link #parseCountry(CharSequence, int, int, String)}.
+     */
+    static void appendCategoryRates(StringBuilder builder, Country country,
+                                    String delimiter) {
+        country.getCategoryRates().forEach((category, rate) -> builder
+                .append(delimiter).append(category.getKey()).append('=')
+                .append(formatDecimal(rate)));
+    }
+
+    /**
+     * Parses a decimal number written in the format of the defined Locale,
+     * e.g. "9,5". Numbers that fit into a long are parsed without creating
+     * any intermediate String.
+     *
+     * @throws VatRatesParseException if the value is not a valid number
+     */
+    static BigDecimal parseDecimal(CharSequence data, int start, int end,
+                                   int column)
+            throws VatRatesParseException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (data.charAt(i) == '-' || data.charAt(i) == '+')) {
+            negative = data.charAt(i) == '-';
+            ++i;
+        }
+        long unscaled = 0L;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; ++i) {
+            char c = data.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_LONG_DIGITS) {
+                    return parseDecimalSlow(data, start, end, column);
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    ++scale;
+                }
+            } else if (c == DECIMAL_SEPARATOR && scale < 0) {
+                scale = 0;
+            } else {
+                throw invalidNumber(data, start, end, column);
+            }
+        }
+        if (digits == 0) {
+            throw invalidNumber(data, start, end, column);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled,
+                Math.max(scale, 0));
+    }
+
+    /**
+     * Formats a decimal number in the format read by
+     * {@link #parseDecimal(CharSequence, int, int, int)} with no loss
+     * of precision.
+     */
+    static String formatDecimal(BigDecimal value) {
+        return value.toPlainString().replace('.', DECIMAL_SEPARATOR);
+    }
+
+    /**
+     * Formats a decimal number for display the same way as the number
+     * format of the Locale, e.g. "21", "9,5" or "1 000": the integer part
+     * is grouped, the fraction is rounded half-even to at most 3 digits
+     * and has no trailing zeros. Unlike a NumberFormat it needs
+     * no formatter instance, so it is thread-safe.
+     */
+    public static String formatRate(BigDecimal value) {
+        BigDecimal rounded = value.scale() > MAX_FRACTION_DIGITS
+                ? value.setScale(MAX_FRACTION_DIGITS, RoundingMode.HALF_EVEN)
+                : value;
+        String digits = stripTrailingZeros(rounded.abs()).toPlainString();
+        int point = digits.indexOf('.');
+        int integerEnd = point < 0 ? digits.length() : point;
+        StringBuilder result = new StringBuilder(digits.length()
+                + integerEnd / GROUPING_SIZE + 1);
+        if (value.signum() < 0) {
+            result.append(MINUS_SIGN);
+        }
+        for (int i = 0; i < integerEnd; ++i) {
+            if (i > 0 && (integerEnd - i) % GROUPING_SIZE == 0) {
+                result.append(GROUPING_SEPARATOR);
+            }
+            result.append(digits.charAt(i));
+        }
+        if (point >= 0) {
+            result.append(DECIMAL_SEPARATOR).append(digits, point + 1,
+                    digits.length());
+        }
+        return result.toString();
+    }
+
+    /**
+     * Removes trailing zeros of the fraction of a decimal number, but keeps
+     * zeros of an integer, so "20,0" becomes "20" and not "2E+1".
+     */
+    static BigDecimal stripTrailingZeros(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    /**
+     * Parses a number with too many digits for a long. Accepts the same
+     * characters as the fast path, i.e. an optional sign, digits and one
+     * decimal separator of the Locale, so no point or exponent.
+     */
+    private static BigDecimal parseDecimalSlow(CharSequence data, int start,
+                                               int end, int column)
+            throws VatRatesParseException {
+        StringBuilder value = new StringBuilder(end - start);
+        boolean hasSeparator = false;
+        for (int i = start; i < end; ++i) {
+            char c = data.charAt(i);
+            if (c >= '0' && c <= '9'
+                    || i == start && (c == '-' || c == '+')) {
+                value.append(c);
+            } else if (c == DECIMAL_SEPARATOR && !hasSeparator) {
+                hasSeparator = true;
+                value.append('.');
+            } else {
+                throw invalidNumber(data, start, end, column);
+            }
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            throw invalidNumber(data, start, end, column);
+        }
+    }
+
+    /**
+     * Parses "true" or "false" ignoring case, as Scanner does.
+     *
+     * @throws VatRatesParseException if the value is not a boolean
+     */
+    static boolean parseBoolean(CharSequence data, int start, int end,
+                                int column)
+            throws VatRatesParseException {
+        int length = end - start;
+        if (length == 4 && regionMatches(data, start, "true")) {
+            return true;
+        }
+        if (length == 5 && regionMatches(data, start, "false")) {
+            return false;
+        }
+        throw new VatRatesParseException("Neplatná logická hodnota: \""
+                + data.subSequence(start, end) + "\"", column);
+    }
+
+    private static boolean regionMatches(CharSequence data, int start,
+                                         String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (Character.toLowerCase(data.charAt(start + i))
+                    != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nextDelimiter(CharSequence data, int from, int end,
+                                     String delimiter, int column)
+            throws VatRatesParseException {
+        int index = indexOf(data, from, end, delimiter);
+        if (index == end) {
+            throw new VatRatesParseException(
+                    "Chybějící hodnota ve sloupci č. " + (column + 1),
+                    column + 1);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the next delimiter in a part of a character sequence.
+     *
+     * @return index of the delimiter or end if there is none
+     */
+    static int indexOf(CharSequence data, int from, int end,
+                       String delimiter) {
+        char first = delimiter.charAt(0);
+        int last = end - delimiter.length();
+        for (int i = from; i <= last; ++i) {
+            if (data.charAt(i) == first && matchesAt(data, i, delimiter)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean matchesAt(CharSequence data, int index,
+                                     String delimiter) {
+        for (int i = 1; i < delimiter.length(); ++i) {
+            if (data.charAt(index + i) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static VatRatesParseException invalidNumber(CharSequence data,
+                                                        int start, int end,
+                                                        int column) {
+        return new VatRatesParseException("Neplatné číslo: \""
+                + data.subSequence(start, end) + "\"", column);
+    }
+}
@@ -0,0 +1,27 @@
+package com.engeto.vatrates;
+
+/**
+ * Formats of exported lists of countries.
+ * - TEXT: descriptions of countries over the limit and codes of the others,
+ *   the layout printed by {@link VatRates};
+ * - TSV: the layout of the input file, so it can be imported again;
+ * - CSV: comma-separated values with a header row;
+ * - JSON_LINES: one JSON object per country.
+ * Structured formats contain all countries, the ones over the limit first.
+ */
+public enum ExportFormat {
+    TEXT("txt"),
+    TSV("tsv"),
+    CSV("csv"),
+    JSON_LINES("jsonl");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,16 @@
+package com.engeto.vatrates;
+
+/**
+ * Invalid line of an imported file.
+ *
+ * @param line number of the line starting from 1
+ * @param column number of the invalid column starting from 1
+ * @param reason description of the error
+ */
+public record ImportError(long line, int column, String reason) {
+    @Override
+    public String toString() {
+        return reason + ", řádek souboru č. " + line + ", sloupec č. "
+                + column;
+    }
+}
@@ -0,0 +1,26 @@
+package com.engeto.vatrates;
+
+import java.util.List;
+
+/**
+ * Result of a lenient import: valid countries in the order of lines
+ * of the file and errors of the invalid lines. Only the first errors
+ * up to a limit are kept, but all of them are counted.
+ *
+ * @param countries countries of the valid lines
+ * @param errors first errors in the order of lines
+ * @param errorCount number of all invalid lines
+ */
+public record ImportResult(List<Country> countries, List<ImportError> errors,
+                           long errorCount) {
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    /**
+     * Tells whether some errors were counted but not kept.
+     */
+    public boolean isTruncated() {
+        return errorCount > errors.size();
+    }
+}
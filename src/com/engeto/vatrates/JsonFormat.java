@@ -0,0 +1,77 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Writes countries as JSON with no external dependencies. Rates are written
+ * as plain JSON numbers. Rates of other categories are written only
+ * if a country has any.
+ */
+class JsonFormat {
+
+    /**
+     * Appends a country as a JSON object.
+     */
+    static void appendCountry(StringBuilder builder, Country country) {
+        builder.append('{');
+        appendCountryFields(builder, country);
+        builder.append('}');
+    }
+
+    /**
+     * Appends fields of a country without the enclosing braces, so that other
+     * fields can follow.
+     */
+    static void appendCountryFields(StringBuilder builder, Country country) {
+        builder.append("\"code\":");
+        appendString(builder, country.getCodeOfCountry());
+        builder.append(",\"name\":");
+        appendString(builder, country.getNameOfCountry());
+        builder.append(",\"vatStandard\":")
+                .append(country.getVatStandard().toPlainString())
+                .append(",\"vatReduced\":")
+                .append(country.getVatReduced().toPlainString())
+                .append(",\"hasVatSpecial\":")
+                .append(country.hasVatSpecial());
+        if (!country.getCategoryRates().isEmpty()) {
+            builder.append(",\"categoryRates\":{");
+            boolean isFirst = true;
+            for (Map.Entry<RateCategory, BigDecimal> entry
+                    : country.getCategoryRates().entrySet()) {
+                if (!isFirst) {
+                    builder.append(',');
+                }
+                appendString(builder, entry.getKey().getKey());
+                builder.append(':').append(entry.getValue().toPlainString());
+                isFirst = false;
+            }
+            builder.append('}');
+        }
+    }
+
+    /**
+     * Appends a quoted and escaped JSON string.
+     */
+    static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+    }
+}
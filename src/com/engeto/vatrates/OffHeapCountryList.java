@@ -0,0 +1,257 @@
+package com.engeto.vatrates;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list of countries stored outside of the heap in direct
+ * buffers, intended for very large datasets. Every country takes a row
+ * of 16 bytes: the code encoded by {@link CountryCodes}, the special VAT
+ * flag, both rates as basis points, see {@link CompactCountry}, and the end
+ * of its name in UTF-8 in a separate buffer. Rows are split into pages
+ * of 65536 rows, so a list is not limited by the size of a single buffer.
+ * Elements are flyweight views of the rows created on access, the heap
+ * holds only the pages, so its usage does not depend on the size
+ * of the list. Views are immutable, their setters throw
+ * UnsupportedOperationException. Rates of other categories are not stored,
+ * so countries having them are rejected rather than silently resolved
+ * to the standard or reduced rate.
+ */
+public class OffHeapCountryList extends AbstractList<Country>
+        implements RandomAccess {
+    private static final int PAGE_SHIFT = 16;
+    private static final int ROWS_PER_PAGE = 1 << PAGE_SHIFT;
+    private static final int ROW_SIZE = 16;
+    private static final int CODE = 0;
+    private static final int VAT_SPECIAL = 2;
+    private static final int VAT_STANDARD = 4;
+    private static final int VAT_REDUCED = 8;
+    private static final int NAME_END = 12;
+    private static final int INITIAL_NAMES_CAPACITY = ROWS_PER_PAGE * 16;
+
+    private final List<ByteBuffer> rowPages = new ArrayList<>();
+    private final List<ByteBuffer> namePages = new ArrayList<>();
+    private int size;
+
+    private OffHeapCountryList() {
+    }
+
+    /**
+     * Copies countries off the heap keeping their order.
+     *
+     * @throws IllegalArgumentException if a code of a country is not two
+     *                                  uppercase letters or a country has
+     *                                  rates of other categories
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public static OffHeapCountryList of(Collection<Country> countries) {
+        OffHeapCountryList list = new OffHeapCountryList();
+        countries.forEach(list::append);
+        return list;
+    }
+
+    /**
+     * Imports countries from a file straight off the heap, so no list
+     * of countries is held on the heap during the import. The format
+     * of the file is the same as of
+     * {@link VatRatesList#importFromFile(String, String)}.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @return list of countries in the order of lines of the file
+     * @throws VatRatesException if the file cannot be read or a line is not
+     *                           valid or has rates of other categories,
+     *                           the message contains the line number
+     */
+    public static OffHeapCountryList importFromFile(String file,
+                                                    String delimiter)
+            throws VatRatesException {
+        OffHeapCountryList list = new OffHeapCountryList();
+        long lineNumber = 0L;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                ++lineNumber;
+                Country country = VatRatesList.parseCountry(record, delimiter);
+                if (!CountryCodes.isValid(country.getCodeOfCountry())) {
+                    throw new VatRatesException("Neplatný kód země: \""
+                            + country.getCodeOfCountry() + "\"");
+                }
+                if (!country.getCategoryRates().isEmpty()) {
+                    throw new VatRatesException(categoryRatesMessage(country));
+                }
+                list.append(country);
+            }
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při načítání souboru: "
+                    + e.getLocalizedMessage());
+        } catch (VatRatesException | ArithmeticException e) {
+            throw new VatRatesException(e.getLocalizedMessage()
+                    + ", řádek souboru č. " + lineNumber);
+        }
+        return list;
+    }
+
+    @Override
+    public Country get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", velikost: " + size);
+        }
+        return new View(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void append(Country country) {
+        if (!country.getCategoryRates().isEmpty()) {
+            throw new IllegalArgumentException(categoryRatesMessage(country));
+        }
+        short code = CountryCodes.encode(country.getCodeOfCountry());
+        int vatStandard =
+                CompactCountry.toBasisPoints(country.getVatStandard());
+        int vatReduced = CompactCountry.toBasisPoints(country.getVatReduced());
+        byte[] name = country.getNameOfCountry()
+                .getBytes(StandardCharsets.UTF_8);
+
+        int row = size & (ROWS_PER_PAGE - 1);
+        if (row == 0) {
+            rowPages.add(ByteBuffer.allocateDirect(ROWS_PER_PAGE * ROW_SIZE));
+            namePages.add(ByteBuffer.allocateDirect(INITIAL_NAMES_CAPACITY));
+        }
+        int page = rowPages.size() - 1;
+        ByteBuffer rows = rowPages.get(page);
+        int nameStart = row == 0 ? 0
+                : rows.getInt((row - 1) * ROW_SIZE + NAME_END);
+        ByteBuffer names = ensureCapacity(page, nameStart + name.length);
+        names.put(nameStart, name);
+
+        int offset = row * ROW_SIZE;
+        rows.putShort(offset + CODE, code);
+        rows.put(offset + VAT_SPECIAL,
+                (byte) (country.hasVatSpecial() ? 1 : 0));
+        rows.putInt(offset + VAT_STANDARD, vatStandard);
+        rows.putInt(offset + VAT_REDUCED, vatReduced);
+        rows.putInt(offset + NAME_END, nameStart + name.length);
+        ++size;
+    }
+
+    private static String categoryRatesMessage(Country country) {
+        return "Sazby kategorií nelze uložit mimo haldu: \""
+                + country.getCodeOfCountry() + "\"";
+    }
+
+    /**
+     * Grows the buffer of names of a page to at least the passed capacity.
+     *
+     * @return buffer of names of the page
+     */
+    private ByteBuffer ensureCapacity(int page, int capacity) {
+        ByteBuffer names = namePages.get(page);
+        if (capacity <= names.capacity()) {
+            return names;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(
+                Math.max(capacity, names.capacity() * 2));
+        grown.put(0, names, 0, names.capacity());
+        namePages.set(page, grown);
+        return grown;
+    }
+
+    /**
+     * Country backed by a row of the list.
+     */
+    private final class View extends Country {
+        private final ByteBuffer rows;
+        private final int page;
+        private final int row;
+        private final int offset;
+
+        View(int index) {
+            super(null, null, null, null, false);
+            this.page = index >>> PAGE_SHIFT;
+            this.rows = rowPages.get(page);
+            this.row = index & (ROWS_PER_PAGE - 1);
+            this.offset = row * ROW_SIZE;
+        }
+
+        @Override
+        public String getCodeOfCountry() {
+            return CountryCodes.decode(rows.getShort(offset + CODE));
+        }
+
+        @Override
+        public boolean hasVatSpecial() {
+            return rows.get(offset + VAT_SPECIAL) != 0;
+        }
+
+        @Override
+        public String getNameOfCountry() {
+            int start = row == 0 ? 0
+                    : rows.getInt(offset - ROW_SIZE + NAME_END);
+            byte[] name = new byte[rows.getInt(offset + NAME_END) - start];
+            namePages.get(page).get(start, name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public BigDecimal getVatReduced() {
+            return CompactCountry.toBigDecimal(
+                    rows.getInt(offset + VAT_REDUCED));
+        }
+
+        @Override
+        public BigDecimal getVatStandard() {
+            return CompactCountry.toBigDecimal(
+                    rows.getInt(offset + VAT_STANDARD));
+        }
+
+        @Override
+        public void setCodeOfCountry(String codeOfCountry) {
+            throw unmodifiable();
+        }
+
+        @Override
+        public void setVatSpecial(boolean hasVatSpecial) {
+            throw unmodifiable();
+        }
+
+        @Override
+        public void setNameOfCountry(String nameOfCountry) {
+            throw unmodifiable();
+        }
+
+        @Override
+        public void setVatReduced(BigDecimal vatReduced) {
+            throw unmodifiable();
+        }
+
+        @Override
+        public void setVatStandard(BigDecimal vatStandard) {
+            throw unmodifiable();
+        }
+
+        @Override
+        public void setCategoryRate(RateCategory category, BigDecimal rate) {
+            throw unmodifiable();
+        }
+
+        private static UnsupportedOperationException unmodifiable() {
+            return new UnsupportedOperationException(
+                    "Země uložená mimo haldu je neměnná");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.engeto.vatrates;
+
+import java.util.Locale;
+
+/**
+ * Categories of VAT rates of a country. The standard and reduced rates are
+ * held in their own columns, the other categories are optional and written
+ * in the input file as trailing fields "category=rate", e.g. "books=5".
+ * A category a country has no rate for falls back to another category,
+ * ending at the standard rate:
+ * - SUPER_REDUCED falls back to REDUCED;
+ * - every other category falls back to STANDARD.
+ */
+public enum RateCategory {
+    STANDARD(null),
+    REDUCED(STANDARD),
+    SUPER_REDUCED(REDUCED),
+    PARKING(STANDARD),
+    FOOD(STANDARD),
+    WATER(STANDARD),
+    MEDICINES(STANDARD),
+    BOOKS(STANDARD),
+    NEWSPAPERS(STANDARD),
+    PASSENGER_TRANSPORT(STANDARD),
+    ACCOMMODATION(STANDARD),
+    RESTAURANTS(STANDARD),
+    CULTURE(STANDARD);
+
+    private static final RateCategory[] VALUES = values();
+
+    private final RateCategory fallback;
+    private final String key;
+
+    RateCategory(RateCategory fallback) {
+        this.fallback = fallback;
+        this.key = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds an optional category by its key in the input file.
+     *
+     * @return category or null if the key is unknown or belongs
+     *         to the standard or reduced rate
+     */
+    public static RateCategory ofKey(CharSequence key) {
+        for (int i = 2; i < VALUES.length; ++i) {
+            if (VALUES[i].key.contentEquals(key)) {
+                return VALUES[i];
+            }
+        }
+        return null;
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Gets the category used if a country has no rate of this one.
+     *
+     * @return fallback category or null for the standard rate
+     */
+    public RateCategory getFallback() {
+        return fallback;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Tells whether the rate is held in its own column, i.e. it is
+     * the standard or reduced rate.
+     */
+    public boolean isColumn() {
+        return this == STANDARD || this == REDUCED;
+    }
+}
@@ -0,0 +1,101 @@
+package com.engeto.vatrates;
+
+/**
+ * Computes VAT of amounts held in minor units, e.g. cents, in bulk. Rates
+ * are passed as basis points, see {@link CompactCountry#toBasisPoints},
+ * so no BigDecimal is created per amount. VAT is rounded half up, i.e.
+ * halves are rounded away from zero.
+ */
+public class VatCalculator {
+    private static final long BASIS_POINTS_OF_WHOLE = 10_000L;
+    private static final long HALF = BASIS_POINTS_OF_WHOLE / 2;
+
+    /**
+     * Computes VAT of a single amount.
+     *
+     * @param netAmount amount without VAT in minor units
+     * @param rateBasisPoints VAT rate in basis points
+     * @return VAT in minor units
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long computeVat(long netAmount, int rateBasisPoints) {
+        long product = Math.multiplyExact(netAmount, rateBasisPoints);
+        long vat = product / BASIS_POINTS_OF_WHOLE;
+        long remainder = product % BASIS_POINTS_OF_WHOLE;
+        if (remainder >= HALF) {
+            ++vat;
+        } else if (remainder <= -HALF) {
+            --vat;
+        }
+        return vat;
+    }
+
+    /**
+     * Computes VAT of net amounts.
+     *
+     * @param netAmounts amounts without VAT in minor units
+     * @param rateBasisPoints VAT rate in basis points
+     * @param vatAmounts array the VAT in minor units is stored in, it may be
+     *                   the same array as netAmounts
+     * @throws ArithmeticException if a result overflows
+     */
+    public static void computeVat(long[] netAmounts, int rateBasisPoints,
+                                  long[] vatAmounts) {
+        checkLengths(netAmounts, vatAmounts);
+        for (int i = 0; i < netAmounts.length; ++i) {
+            vatAmounts[i] = computeVat(netAmounts[i], rateBasisPoints);
+        }
+    }
+
+    /**
+     * Computes gross amounts, i.e. net amounts including VAT.
+     *
+     * @param netAmounts amounts without VAT in minor units
+     * @param rateBasisPoints VAT rate in basis points
+     * @param grossAmounts array the gross amounts in minor units are stored
+     *                     in, it may be the same array as netAmounts
+     * @throws ArithmeticException if a result overflows
+     */
+    public static void addVat(long[] netAmounts, int rateBasisPoints,
+                              long[] grossAmounts) {
+        checkLengths(netAmounts, grossAmounts);
+        for (int i = 0; i < netAmounts.length; ++i) {
+            long netAmount = netAmounts[i];
+            grossAmounts[i] = Math.addExact(netAmount,
+                    computeVat(netAmount, rateBasisPoints));
+        }
+    }
+
+    /**
+     * Computes gross amounts with the standard VAT of a country.
+     *
+     * @throws ArithmeticException if the rate has more than two decimal
+     *                             places or a result overflows
+     */
+    public static void addVatStandard(Country country, long[] netAmounts,
+                                      long[] grossAmounts) {
+        addVat(netAmounts,
+                CompactCountry.toBasisPoints(country.getVatStandard()),
+                grossAmounts);
+    }
+
+    /**
+     * Computes gross amounts with the reduced VAT of a country.
+     *
+     * @throws ArithmeticException if the rate has more than two decimal
+     *                             places or a result overflows
+     */
+    public static void addVatReduced(Country country, long[] netAmounts,
+                                     long[] grossAmounts) {
+        addVat(netAmounts,
+                CompactCountry.toBasisPoints(country.getVatReduced()),
+                grossAmounts);
+    }
+
+    private static void checkLengths(long[] amounts, long[] results) {
+        if (amounts.length != results.length) {
+            throw new IllegalArgumentException("Rozdílné délky polí: "
+                    + amounts.length + " a " + results.length);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves the VAT rate of a country and a category through a dense table
+ * over all two-letter codes, see {@link CountryCodes}, and all categories.
+ * Fallbacks of categories, see {@link RateCategory}, are applied when
+ * the table is built, so a rate is resolved by a single array access.
+ * Rates are stored as basis points, see {@link CompactCountry}. Batches
+ * of line items are resolved into arrays passed by the caller, so nothing
+ * is allocated per item.
+ */
+public class VatRateResolver {
+    /**
+     * Basis points of a country that is not in the table.
+     */
+    public static final int NO_RATE = Integer.MIN_VALUE;
+    private static final RateCategory[] CATEGORIES = RateCategory.values();
+
+    private final int[] rates;
+
+    private VatRateResolver(int[] rates) {
+        this.rates = rates;
+    }
+
+    /**
+     * Creates a resolver of a list of countries. Of several countries with
+     * the same code the first one is used, countries whose code is not
+     * two uppercase letters are skipped.
+     *
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public static VatRateResolver of(List<Country> listOfCountries) {
+        int[] rates = new int[CountryCodes.COUNT * CATEGORIES.length];
+        Arrays.fill(rates, NO_RATE);
+        for (Country country : listOfCountries) {
+            if (!CountryCodes.isValid(country.getCodeOfCountry())) {
+                continue;
+            }
+            int offset = CountryCodes.encode(country.getCodeOfCountry())
+                    * CATEGORIES.length;
+            if (rates[offset] != NO_RATE) {
+                continue;
+            }
+            for (RateCategory category : CATEGORIES) {
+                rates[offset + category.ordinal()] = CompactCountry
+                        .toBasisPoints(country.getVatRate(category));
+            }
+        }
+        return new VatRateResolver(rates);
+    }
+
+    /**
+     * Resolves the rate of an encoded code of a country and a category.
+     *
+     * @param code code encoded by {@link CountryCodes#encode(String)}
+     * @return rate in basis points or {@link #NO_RATE}
+     */
+    public int getVatBasisPoints(short code, RateCategory category) {
+        return rates[code * CATEGORIES.length + category.ordinal()];
+    }
+
+    /**
+     * Resolves the rate of a country and a category.
+     *
+     * @param codeOfCountry code of the country
+     * @return rate, if the country is known
+     */
+    public Optional<BigDecimal> getVatRate(String codeOfCountry,
+                                           RateCategory category) {
+        if (!CountryCodes.isValid(codeOfCountry)) {
+            return Optional.empty();
+        }
+        int rate = getVatBasisPoints(CountryCodes.encode(codeOfCountry),
+                category);
+        return rate == NO_RATE ? Optional.empty()
+                : Optional.of(CompactCountry.toBigDecimal(rate));
+    }
+
+    /**
+     * Resolves rates of line items.
+     *
+     * @param codes encoded codes of countries of the items
+     * @param categories categories of the items
+     * @param basisPoints array the rates in basis points are stored in,
+     *                    {@link #NO_RATE} for unknown countries
+     * @throws IllegalArgumentException if the lengths of arrays differ
+     */
+    public void resolve(short[] codes, RateCategory[] categories,
+                        int[] basisPoints) {
+        checkLengths(codes.length, categories.length);
+        checkLengths(codes.length, basisPoints.length);
+        for (int i = 0; i < codes.length; ++i) {
+            basisPoints[i] = getVatBasisPoints(codes[i], categories[i]);
+        }
+    }
+
+    /**
+     * Computes VAT of line items with the rates of their countries
+     * and categories, see {@link VatCalculator#computeVat(long, int)}.
+     * All countries are checked before any result is stored, so vatAmounts
+     * is left unchanged if a country is unknown. If a result overflows,
+     * the contents of vatAmounts are undefined.
+     *
+     * @param codes encoded codes of countries of the items
+     * @param categories categories of the items
+     * @param netAmounts amounts without VAT in minor units
+     * @param vatAmounts array the VAT in minor units is stored in, it may be
+     *                   the same array as netAmounts
+     * @throws IllegalArgumentException if the lengths of arrays differ
+     *                                  or a country is unknown
+     * @throws ArithmeticException if a result overflows
+     */
+    public void computeVat(short[] codes, RateCategory[] categories,
+                           long[] netAmounts, long[] vatAmounts) {
+        checkLengths(codes.length, categories.length);
+        checkLengths(codes.length, netAmounts.length);
+        checkLengths(codes.length, vatAmounts.length);
+        for (int i = 0; i < codes.length; ++i) {
+            if (getVatBasisPoints(codes[i], categories[i]) == NO_RATE) {
+                throw new IllegalArgumentException("Neznámá země: "
+                        + CountryCodes.decode(codes[i]));
+            }
+        }
+        for (int i = 0; i < codes.length; ++i) {
+            vatAmounts[i] = VatCalculator.computeVat(netAmounts[i],
+                    getVatBasisPoints(codes[i], categories[i]));
+        }
+    }
+
+    private static void checkLengths(int length, int other) {
+        if (length != other) {
+            throw new IllegalArgumentException("Rozdílné délky polí: "
+                    + length + " a " + other);
+        }
+    }
+}
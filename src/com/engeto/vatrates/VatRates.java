@@ -1,7 +1,8 @@
 package com.engeto.vatrates;
 
 import java.math.BigDecimal;
-import java.text.ParseException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -24,23 +25,35 @@ public class VatRates {
         if (input.isBlank()) {
             inputVatStdLimit = Constants.getVatDefault();
         } else {
-            try {
-                if (input.contains(",")) {
-                    Number inputToNumber =
-                            Constants.getNumberFormat().parse(input);
-                    inputVatStdLimit =
-                            new BigDecimal(inputToNumber.toString());
-                } else {
-                    inputVatStdLimit = new BigDecimal(input);
-                }
-            } catch (ParseException | NumberFormatException e) {
-                throw new VatRatesException("Neplatná vstupní hodnota: "
-                        + e.getLocalizedMessage());
-            }
+            inputVatStdLimit = parseVatStdLimit(input);
         }
         return inputVatStdLimit;
     }
 
+    /**
+     * Parses a VAT rate written either with a decimal comma of the defined
+     * Locale or with a decimal point.
+     *
+     * @param input VAT rate as text
+     * @return parsed VAT rate
+     * @throws VatRatesException if the input is not a number
+     */
+    public static BigDecimal parseVatStdLimit(String input)
+            throws VatRatesException {
+        try {
+            if (input.contains(",")) {
+                return CountryParser.stripTrailingZeros(
+                        CountryParser.parseDecimal(input, 0, input.length(),
+                                1));
+            } else {
+                return new BigDecimal(input);
+            }
+        } catch (VatRatesParseException | NumberFormatException e) {
+            throw new VatRatesException("Neplatná vstupní hodnota: "
+                    + e.getLocalizedMessage());
+        }
+    }
+
     /**
      * Prints the description of all countries imported from a file.
      *
@@ -63,7 +76,7 @@ public class VatRates {
     public static void printByVat(List<Country> listOfCountries,
                                            BigDecimal vatStdLimit) {
         System.out.println("Vypiš země s DPH vyšší než "
-                + Constants.getNumberFormat().format(vatStdLimit)
+                + CountryParser.formatRate(vatStdLimit)
                 + " % a bez speciální sazby daně:");
         List<Country> filteredList =
                 VatRatesList.filterByVat(listOfCountries, vatStdLimit);
@@ -82,7 +95,7 @@ public class VatRates {
     public static void printByVatDescending(List<Country> listOfCountries,
                                   BigDecimal vatStdLimit) {
         System.out.println("Vypiš země s DPH vyšší než "
-                + Constants.getNumberFormat().format(vatStdLimit)
+                + CountryParser.formatRate(vatStdLimit)
                 + " % a bez speciální sazby daně, sestupně:");
         List<Country> filteredList =
                 VatRatesList.filterByVat(listOfCountries, vatStdLimit);
@@ -93,6 +106,24 @@ public class VatRates {
         System.out.println(Constants.getTaskSeparator());
     }
 
+    /**
+     * Prints the description of a list of countries filtered by the passed
+     * standard VAT, sorted in descending order. Served from the index
+     * of the list, so no sorting is done per call.
+     *
+     * @param vatRatesList list of countries with its index
+     * @param vatStdLimit standard VAT rate used for filtering the list
+     */
+    public static void printByVatDescending(VatRatesList vatRatesList,
+                                            BigDecimal vatStdLimit) {
+        System.out.println("Vypiš země s DPH vyšší než "
+                + CountryParser.formatRate(vatStdLimit)
+                + " % a bez speciální sazby daně, sestupně:");
+        vatRatesList.getByVatDescending(vatStdLimit).forEach(country ->
+                System.out.println(country.getDescription()));
+        System.out.println(Constants.getTaskSeparator());
+    }
+
     /**
      * Prints the description of a list of countries filtered by the passed
      * standard VAT, sorted in descending order, and a list of other countries
@@ -105,7 +136,7 @@ public class VatRates {
     public static void printByVatWithOthers(List<Country> listOfCountries,
                                             BigDecimal vatStdLimit) {
         System.out.println("Vypiš země s DPH vyšší než "
-                + Constants.getNumberFormat().format(vatStdLimit)
+                + CountryParser.formatRate(vatStdLimit)
                 + " % a bez speciální sazby daně, sestupně, "
                 + "seznam zkratek, které ve výpisu nefigurují, "
                 + "vzestupně:");
@@ -126,6 +157,29 @@ public class VatRates {
         System.out.println(Constants.getTaskSeparator());
     }
 
+    /**
+     * Prints the description of a list of countries filtered by the passed
+     * standard VAT, sorted in descending order, and a list of other countries
+     * codes sorted in ascending order.
+     * Served from the index of the list, so no sorting is done per call.
+     *
+     * @param vatRatesList list of countries with its index
+     * @param vatStdLimit standard VAT rate used for filtering the list
+     */
+    public static void printByVatWithOthers(VatRatesList vatRatesList,
+                                            BigDecimal vatStdLimit) {
+        System.out.println("Vypiš země s DPH vyšší než "
+                + CountryParser.formatRate(vatStdLimit)
+                + " % a bez speciální sazby daně, sestupně, "
+                + "seznam zkratek, které ve výpisu nefigurují, "
+                + "vzestupně:");
+        vatRatesList.getByVatDescending(vatStdLimit).forEach(country ->
+                System.out.println(country.getDescriptionVerbose()));
+        System.out.println(VatRatesList.getStringOfOtherCountries(
+                vatRatesList.getOthersByCode(vatStdLimit), vatStdLimit));
+        System.out.println(Constants.getTaskSeparator());
+    }
+
     /**
      * Prints the description of a list of countries filtered by the passed
      * standard VAT, sorted in descending order, and a list of other countries
@@ -139,7 +193,7 @@ public class VatRates {
             Map<Boolean, List<Country>> mapOfCountries,
             BigDecimal vatStdLimit) {
         System.out.println("Vypiš země s DPH vyšší než "
-                + Constants.getNumberFormat().format(vatStdLimit)
+                + CountryParser.formatRate(vatStdLimit)
                 + " % a bez speciální sazby daně, sestupně, "
                 + "seznam zkratek, které ve výpisu nefigurují, vzestupně, "
                 + "státy rozděleny na 1 průchod:");
@@ -169,6 +223,23 @@ public class VatRates {
 
     }
 
+    /**
+     * Exports the list of countries partitioned by each of the passed limits
+     * in its own file. All files are written at once.
+     *
+     * @param vatRatesList list of countries with its index
+     * @param vatStdLimits standard VAT rates used for partitioning the list
+     */
+    public static void printToFiles(VatRatesList vatRatesList,
+                                    Collection<BigDecimal> vatStdLimits)
+            throws VatRatesException {
+        Map<BigDecimal, Path> files =
+                vatRatesList.exportToFiles(vatStdLimits, ExportFormat.TEXT);
+        files.values().forEach(file -> System.out.println(
+                "Exportován výpis do souboru \"" + file + "\""));
+        System.out.println(Constants.getTaskSeparator());
+    }
+
     public static void main(String[] args) {
         Logger logger = Logger.getLogger("VAT rates");
         try {
@@ -184,27 +255,29 @@ public class VatRates {
             BigDecimal vatStdLimit = Constants.getVatDefault();
             printByVat(listOfCountries, vatStdLimit);
 
-            printByVatDescending(listOfCountries, vatStdLimit);
+            printByVatDescending(vatRatesList, vatStdLimit);
 
-            printByVatWithOthers(listOfCountries, vatStdLimit);
+            printByVatWithOthers(vatRatesList, vatStdLimit);
 
             printByVatWithOthersAltn(
                     VatRatesList.filterByVatOnePass(listOfCountries,
                             vatStdLimit),
                     vatStdLimit);
 
-            printToFile(listOfCountries, vatStdLimit);
-
-            vatStdLimit = inputVatStdLimit();
+            BigDecimal inputVatStdLimit = inputVatStdLimit();
             printByVatWithOthersAltn(
                     VatRatesList.filterByVatOnePass(listOfCountries,
-                            vatStdLimit),
-                    vatStdLimit);
+                            inputVatStdLimit),
+                    inputVatStdLimit);
 
-            printToFile(listOfCountries, vatStdLimit);
+            printToFiles(vatRatesList, List.of(vatStdLimit,
+                    inputVatStdLimit));
         } catch (VatRatesException e) {
             logger.log(Level.WARNING, e.getClass().getName() + ": "
                     + e.getLocalizedMessage());
         }
+        if (VatRatesMetrics.isEnabled()) {
+            logger.info(VatRatesMetrics.toText());
+        }
     }
 }
@@ -5,6 +5,8 @@ package com.engeto.vatrates;
  * exceptions.
  */
 public class VatRatesException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public VatRatesException(String msg) {
         super(msg);
     }
@@ -0,0 +1,212 @@
+package com.engeto.vatrates;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exports a list of countries partitioned by the standard VAT rate. Rows
+ * are streamed in their final order straight from a {@link VatRatesIndex}
+ * through a direct buffer to a channel, so memory use does not depend
+ * on the size of the list. Write errors are reported, not swallowed.
+ */
+public class VatRatesExporter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String CSV_HEADER =
+            "code,name,vatStandard,vatReduced,hasVatSpecial,overLimit";
+
+    /**
+     * Exports in a file named "vat-over-limit" with the extension
+     * of the format in the resources directory.
+     *
+     * @param index index of the list of countries
+     * @param vatStdLimit VAT standard limit that is used for filtering
+     *                    the list of countries
+     * @param format format of the file
+     * @return path to the exported file
+     * @throws VatRatesException if IOException is thrown
+     */
+    public static Path exportToFile(VatRatesIndex index,
+                                    BigDecimal vatStdLimit,
+                                    ExportFormat format)
+            throws VatRatesException {
+        Path file = Path.of(Constants.getResourcesPath() + "vat-over-"
+                + vatStdLimit + "." + format.getExtension());
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            export(index, vatStdLimit, format, channel);
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při exportu do souboru: "
+                    + e.getLocalizedMessage());
+        }
+        return file;
+    }
+
+    /**
+     * Exports countries over the limit and without the special VAT
+     * in descending order followed by other countries in ascending order
+     * of codes.
+     *
+     * @param index index of the list of countries
+     * @param vatStdLimit VAT standard limit that is used for filtering
+     *                    the list of countries
+     * @param format format of the output
+     * @param channel channel the output is written to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public static void export(VatRatesIndex index, BigDecimal vatStdLimit,
+                              ExportFormat format,
+                              WritableByteChannel channel)
+            throws IOException {
+        VatRatesMetrics.timed("export", () -> {
+            Output output = new Output(channel);
+            StringBuilder row = new StringBuilder();
+            if (format == ExportFormat.CSV) {
+                output.append(CSV_HEADER).append(System.lineSeparator());
+            }
+            for (Country country
+                    : index.getOverLimitDescending(vatStdLimit)) {
+                row.setLength(0);
+                appendRow(row, country, true, format);
+                output.append(row);
+            }
+            if (format == ExportFormat.TEXT) {
+                output.append(
+                        VatRatesList.getHeadingOfOtherCountries(vatStdLimit));
+            }
+            boolean isFirst = true;
+            for (Country country : index.getSortedByCode()) {
+                if (!country.hasVatSpecial() && country.getVatStandard()
+                        .compareTo(vatStdLimit) > 0) {
+                    continue;
+                }
+                row.setLength(0);
+                if (format == ExportFormat.TEXT) {
+                    if (!isFirst) {
+                        row.append(", ");
+                    }
+                    row.append(country.getCodeOfCountry());
+                } else {
+                    appendRow(row, country, false, format);
+                }
+                output.append(row);
+                isFirst = false;
+            }
+            if (format == ExportFormat.TEXT) {
+                output.append(System.lineSeparator());
+            }
+            output.close();
+        });
+    }
+
+    private static void appendRow(StringBuilder row, Country country,
+                                  boolean isOverLimit, ExportFormat format) {
+        switch (format) {
+            case TEXT -> row.append(country.getDescriptionVerbose());
+            case TSV -> {
+                row.append(country.getCodeOfCountry())
+                        .append(Constants.getDelimiter())
+                        .append(country.getNameOfCountry())
+                        .append(Constants.getDelimiter())
+                        .append(CountryParser.formatDecimal(
+                                country.getVatStandard()))
+                        .append(Constants.getDelimiter())
+                        .append(CountryParser.formatDecimal(
+                                country.getVatReduced()))
+                        .append(Constants.getDelimiter())
+                        .append(country.hasVatSpecial());
+                CountryParser.appendCategoryRates(row, country,
+                        Constants.getDelimiter());
+            }
+            case CSV -> {
+                appendCsvField(row, country.getCodeOfCountry());
+                row.append(',');
+                appendCsvField(row, country.getNameOfCountry());
+                row.append(',')
+                        .append(country.getVatStandard().toPlainString())
+                        .append(',')
+                        .append(country.getVatReduced().toPlainString())
+                        .append(',')
+                        .append(country.hasVatSpecial())
+                        .append(',')
+                        .append(isOverLimit);
+            }
+            case JSON_LINES -> {
+                row.append('{');
+                JsonFormat.appendCountryFields(row, country);
+                row.append(",\"overLimit\":").append(isOverLimit).append('}');
+            }
+        }
+        row.append(System.lineSeparator());
+    }
+
+    private static void appendCsvField(StringBuilder row, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            row.append(value);
+            return;
+        }
+        row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Encodes text in UTF-8 into a direct buffer and writes the buffer
+     * to a channel whenever it is full.
+     */
+    private static class Output {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder =
+                StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer =
+                ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        Output append(CharSequence text) throws IOException {
+            encode(CharBuffer.wrap(text), false);
+            return this;
+        }
+
+        void close() throws IOException {
+            encode(CharBuffer.allocate(0), true);
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+
+        private void encode(CharBuffer text, boolean isEndOfInput)
+                throws IOException {
+            while (true) {
+                CoderResult result =
+                        encoder.encode(text, buffer, isEndOfInput);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.engeto.vatrates;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * History of VAT rates of countries effective from given dates. A change
+ * holds all rates of a country valid from its date until the next change
+ * of the same country, or ends the validity of the rates of the country.
+ * Changes are stored column by column sorted by code and date, rates
+ * as basis points, see {@link CompactCountry}, so the rates in force
+ * on a date are found by a binary search over the k changes of one country
+ * in O(log k). Rates of all countries on a date can be used by the existing
+ * filters and reports, e.g. {@code new VatRatesList(getListOfCountries(date))}.
+ */
+public class VatRatesHistory {
+    private final int[] offsets;
+    private final int[] validFrom;
+    private final String[] names;
+    private final int[] vatStandard;
+    private final int[] vatReduced;
+    private final long[] vatSpecial;
+    private final long[] ended;
+
+    /**
+     * Change of the rates of a country from a date.
+     *
+     * @param codeOfCountry code of the country
+     * @param validFrom first day the change is in force
+     * @param country rates of the country or null if the country has no rates
+     *                from the date on
+     */
+    public record RateChange(String codeOfCountry, LocalDate validFrom,
+                             Country country) {
+        public static RateChange of(LocalDate validFrom, Country country) {
+            return new RateChange(country.getCodeOfCountry(), validFrom,
+                    country);
+        }
+
+        public static RateChange end(String codeOfCountry,
+                                     LocalDate validFrom) {
+            return new RateChange(codeOfCountry, validFrom, null);
+        }
+    }
+
+    private VatRatesHistory(int size) {
+        offsets = new int[CountryCodes.COUNT + 1];
+        validFrom = new int[size];
+        names = new String[size];
+        vatStandard = new int[size];
+        vatReduced = new int[size];
+        vatSpecial = new long[(size + 63) >>> 6];
+        ended = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Creates a history from changes in any order. Of several changes
+     * of a country on the same date the last one is kept.
+     *
+     * @throws IllegalArgumentException if a code of a country is not two
+     *                                  uppercase letters
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public static VatRatesHistory of(List<RateChange> changes) {
+        changes.forEach(change -> CountryCodes.encode(change.codeOfCountry()));
+        List<RateChange> sorted = new ArrayList<>(changes);
+        sorted.sort(Comparator.comparing(RateChange::codeOfCountry)
+                .thenComparing(RateChange::validFrom));
+        List<RateChange> distinct = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); ++i) {
+            RateChange change = sorted.get(i);
+            if (i + 1 < sorted.size()
+                    && isSameDay(change, sorted.get(i + 1))) {
+                continue;
+            }
+            distinct.add(change);
+        }
+
+        VatRatesHistory history = new VatRatesHistory(distinct.size());
+        for (int i = 0; i < distinct.size(); ++i) {
+            RateChange change = distinct.get(i);
+            ++history.offsets[CountryCodes.encode(change.codeOfCountry()) + 1];
+            history.validFrom[i] = Math.toIntExact(
+                    change.validFrom().toEpochDay());
+            Country country = change.country();
+            if (country == null) {
+                history.ended[i >>> 6] |= 1L << i;
+                continue;
+            }
+            String name = country.getNameOfCountry();
+            history.names[i] = i > 0 && name.equals(history.names[i - 1])
+                    ? history.names[i - 1] : name;
+            history.vatStandard[i] =
+                    CompactCountry.toBasisPoints(country.getVatStandard());
+            history.vatReduced[i] =
+                    CompactCountry.toBasisPoints(country.getVatReduced());
+            if (country.hasVatSpecial()) {
+                history.vatSpecial[i >>> 6] |= 1L << i;
+            }
+        }
+        for (int code = 0; code < CountryCodes.COUNT; ++code) {
+            history.offsets[code + 1] += history.offsets[code];
+        }
+        return history;
+    }
+
+    /**
+     * Imports a history from a file. Every line starts with the date
+     * the change is in force from in the ISO format, e.g. "2021-01-01",
+     * followed either by a record of the country in the same format as
+     * in {@link VatRatesList#importFromFile(String, String)}, or by the code
+     * of the country only if its rates are no longer valid.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @return history of rates
+     * @throws VatRatesException if the file cannot be read or a line
+     *                           is invalid
+     */
+    public static VatRatesHistory importFromFile(String file,
+                                                 String delimiter)
+            throws VatRatesException {
+        List<RateChange> changes = new ArrayList<>();
+        long lineNumber = 0L;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                ++lineNumber;
+                changes.add(parseChange(record, delimiter));
+            }
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při načítání souboru: "
+                    + e.getLocalizedMessage());
+        } catch (VatRatesException e) {
+            throw new VatRatesException(e.getLocalizedMessage()
+                    + ", řádek souboru č. " + lineNumber);
+        }
+        return of(changes);
+    }
+
+    /**
+     * Parses one line of a history file, see
+     * {@link #importFromFile(String, String)}.
+     *
+     * @throws VatRatesException if the date, code or record is invalid
+     */
+    public static RateChange parseChange(String record, String delimiter)
+            throws VatRatesException {
+        int end = record.length();
+        int dateEnd = CountryParser.indexOf(record, 0, end, delimiter);
+        if (dateEnd == end) {
+            throw new VatRatesException(
+                    "Chybějící hodnota ve sloupci č. 2");
+        }
+        LocalDate validFrom;
+        try {
+            validFrom = LocalDate.parse(record.substring(0, dateEnd));
+        } catch (DateTimeParseException e) {
+            throw new VatRatesException("Neplatné datum: \""
+                    + record.substring(0, dateEnd) + "\"");
+        }
+        int start = dateEnd + delimiter.length();
+        RateChange change;
+        if (CountryParser.indexOf(record, start, end, delimiter) == end) {
+            change = RateChange.end(record.substring(start), validFrom);
+        } else {
+            change = RateChange.of(validFrom,
+                    CountryParser.parseCountry(record, start, end, delimiter));
+        }
+        if (!CountryCodes.isValid(change.codeOfCountry())) {
+            throw new VatRatesException("Neplatný kód země: \""
+                    + change.codeOfCountry() + "\"");
+        }
+        return change;
+    }
+
+    /**
+     * Finds the rates of a country in force on a date.
+     *
+     * @param codeOfCountry code of the country
+     * @param date date the rates are in force
+     * @return country with the rates or empty if it has none on the date
+     */
+    public Optional<Country> getCountry(String codeOfCountry,
+                                        LocalDate date) {
+        if (!CountryCodes.isValid(codeOfCountry)) {
+            return Optional.empty();
+        }
+        int index = find(CountryCodes.encode(codeOfCountry), toDay(date));
+        return index < 0 ? Optional.empty()
+                : Optional.of(new Country(codeOfCountry, names[index],
+                        CompactCountry.toBigDecimal(vatStandard[index]),
+                        CompactCountry.toBigDecimal(vatReduced[index]),
+                        isSet(vatSpecial, index)));
+    }
+
+    /**
+     * Gets the rates of all countries in force on a date in ascending order
+     * of codes without creating any objects per country.
+     *
+     * @param date date the rates are in force
+     * @return table of countries with rates on the date
+     */
+    public VatRatesTable getTable(LocalDate date) {
+        int day = toDay(date);
+        int[] indexes = new int[CountryCodes.COUNT];
+        int size = 0;
+        for (int code = 0; code < CountryCodes.COUNT; ++code) {
+            indexes[code] = find(code, day);
+            if (indexes[code] >= 0) {
+                ++size;
+            }
+        }
+        short[] tableCodes = new short[size];
+        String[] tableNames = new String[size];
+        int[] tableVatStandard = new int[size];
+        int[] tableVatReduced = new int[size];
+        long[] tableVatSpecial = new long[(size + 63) >>> 6];
+        int i = 0;
+        for (int code = 0; code < CountryCodes.COUNT; ++code) {
+            int index = indexes[code];
+            if (index < 0) {
+                continue;
+            }
+            tableCodes[i] = (short) code;
+            tableNames[i] = names[index];
+            tableVatStandard[i] = vatStandard[index];
+            tableVatReduced[i] = vatReduced[index];
+            if (isSet(vatSpecial, index)) {
+                tableVatSpecial[i >>> 6] |= 1L << i;
+            }
+            ++i;
+        }
+        return new VatRatesTable(size, tableCodes, tableNames,
+                tableVatStandard, tableVatReduced, tableVatSpecial);
+    }
+
+    /**
+     * Gets the rates of all countries in force on a date in ascending order
+     * of codes.
+     *
+     * @param date date the rates are in force
+     * @return new list of countries with rates on the date
+     */
+    public List<Country> getListOfCountries(LocalDate date) {
+        return getTable(date).toList();
+    }
+
+    /**
+     * Gets the number of stored changes.
+     */
+    public int size() {
+        return validFrom.length;
+    }
+
+    /**
+     * Finds the last change of a country that is in force on a day.
+     *
+     * @return index of the change or -1 if the country has no rates
+     */
+    private int find(int code, int day) {
+        int first = offsets[code];
+        int low = first;
+        int high = offsets[code + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (validFrom[middle] <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int index = low - 1;
+        return index < first || isSet(ended, index) ? -1 : index;
+    }
+
+    private static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private static boolean isSameDay(RateChange change, RateChange other) {
+        return change.codeOfCountry().equals(other.codeOfCountry())
+                && change.validFrom().equals(other.validFrom());
+    }
+}
@@ -0,0 +1,186 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orderings of a list of countries built once, so that threshold queries
+ * need no sorting:
+ * - countries without the special VAT sorted by the standard VAT
+ *   in descending order, countries over a limit are its prefix found
+ *   by a binary search;
+ * - all countries sorted by code in ascending order, other countries
+ *   are selected from it in one pass.
+ * Both orderings are stable, so the results are the same as of the sorting
+ * methods of {@link VatRatesList}. Countries are also indexed by code
+ * in an array over all two-letter codes, see {@link CountryCodes}.
+ * Countries must not be modified after the index is built.
+ */
+public class VatRatesIndex {
+    private final List<Country> sortedByVatStdDescending;
+    private final BigDecimal[] vatStdDescending;
+    private final List<Country> sortedByCode;
+    private final Country[] byCode;
+    private final Map<String, Country> byOtherCode;
+
+    public VatRatesIndex(List<Country> listOfCountries) {
+        this(VatRatesMetrics.timed("buildIndex",
+                () -> new Orderings(listOfCountries)));
+    }
+
+    private VatRatesIndex(Orderings orderings) {
+        sortedByVatStdDescending = orderings.sortedByVatStdDescending;
+        vatStdDescending = orderings.vatStdDescending;
+        sortedByCode = orderings.sortedByCode;
+        byCode = orderings.byCode;
+        byOtherCode = orderings.byOtherCode;
+    }
+
+    /**
+     * Orderings built before the index is created, so that building them
+     * can be timed and the fields of the index stay final.
+     */
+    private static final class Orderings {
+        private final List<Country> sortedByVatStdDescending;
+        private final BigDecimal[] vatStdDescending;
+        private final List<Country> sortedByCode;
+        private final Country[] byCode = new Country[CountryCodes.COUNT];
+        private final Map<String, Country> byOtherCode = new HashMap<>();
+
+        private Orderings(List<Country> listOfCountries) {
+            sortedByVatStdDescending = VatRatesList.sortByVatStdDescending(
+                    listOfCountries.stream()
+                            .filter(country -> !country.hasVatSpecial())
+                            .toList());
+            vatStdDescending = sortedByVatStdDescending.stream()
+                    .map(Country::getVatStandard)
+                    .toArray(BigDecimal[]::new);
+            sortedByCode = VatRatesList.sortByCode(listOfCountries);
+            for (Country country : listOfCountries) {
+                String codeOfCountry = country.getCodeOfCountry();
+                if (CountryCodes.isValid(codeOfCountry)) {
+                    int code = CountryCodes.encode(codeOfCountry);
+                    if (byCode[code] == null) {
+                        byCode[code] = country;
+                    }
+                } else {
+                    byOtherCode.putIfAbsent(codeOfCountry, country);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds a country by its code in constant time. Two-letter codes are
+     * looked up directly in an array, other codes in a hash map.
+     *
+     * @param codeOfCountry code of the country
+     * @return the first country with the code in the list or null
+     */
+    public Country getCountry(String codeOfCountry) {
+        if (CountryCodes.isValid(codeOfCountry)) {
+            return byCode[CountryCodes.encode(codeOfCountry)];
+        }
+        return byOtherCode.get(codeOfCountry);
+    }
+
+    /**
+     * Gets countries over the passed value and without the special VAT
+     * in descending order, the same as
+     * {@code sortByVatStdDescending(filterByVat(list, vatStdLimit))}.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering
+     * @return unmodifiable view of the index
+     */
+    public List<Country> getOverLimitDescending(BigDecimal vatStdLimit) {
+        return sortedByVatStdDescending.subList(0,
+                countOverLimit(vatStdLimit));
+    }
+
+    /**
+     * Gets countries that are not over the passed value or use the special
+     * VAT in ascending order of codes, the same as {@code sortByCode} of
+     * the rest of the list.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering
+     * @return list of other countries
+     */
+    public List<Country> getOthersByCode(BigDecimal vatStdLimit) {
+        return sortedByCode.stream()
+                .filter(country -> country.hasVatSpecial()
+                        || country.getVatStandard()
+                                .compareTo(vatStdLimit) <= 0)
+                .toList();
+    }
+
+    /**
+     * Partitions countries by the passed value. Boolean keys correspond
+     * to the sorted lists in a map, the same as sorting both lists of
+     * {@link VatRatesList#filterByVatOnePass}.
+     *
+     * @return map of partitioned sorted lists of countries
+     */
+    public Map<Boolean, List<Country>> getPartition(BigDecimal vatStdLimit) {
+        return Map.of(true, getOverLimitDescending(vatStdLimit),
+                false, getOthersByCode(vatStdLimit));
+    }
+
+    /**
+     * Gets countries without the special VAT whose standard VAT is between
+     * two values including both in descending order.
+     *
+     * @param vatStdFrom the lowest standard VAT value
+     * @param vatStdTo the highest standard VAT value
+     * @return unmodifiable view of the index, empty if the range is empty
+     */
+    public List<Country> getRangeDescending(BigDecimal vatStdFrom,
+                                            BigDecimal vatStdTo) {
+        int from = countOverLimit(vatStdTo);
+        int to = countAtLeast(vatStdFrom);
+        return sortedByVatStdDescending.subList(from, Math.max(from, to));
+    }
+
+    public List<Country> getSortedByCode() {
+        return sortedByCode;
+    }
+
+    /**
+     * Finds the first country whose standard VAT is not over the limit.
+     *
+     * @return number of countries over the limit
+     */
+    private int countOverLimit(BigDecimal vatStdLimit) {
+        int low = 0;
+        int high = vatStdDescending.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (vatStdDescending[middle].compareTo(vatStdLimit) > 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first country whose standard VAT is below the value.
+     *
+     * @return number of countries with at least the value
+     */
+    private int countAtLeast(BigDecimal vatStd) {
+        int low = 0;
+        int high = vatStdDescending.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (vatStdDescending[middle].compareTo(vatStd) >= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
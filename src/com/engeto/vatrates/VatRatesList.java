@@ -1,42 +1,203 @@
 package com.engeto.vatrates;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.InputMismatchException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * Stores a list of countries and enables operations over the list.
+ * The list is held as an immutable snapshot published through an atomic
+ * reference, so readers get a stable view with no copying or locking
+ * and writers replace the whole dataset at once.
  */
 public class VatRatesList {
-    private List<Country> listOfCountries;
+    private static final Comparator<BigDecimal> LIMIT_ORDER =
+            Comparator.<BigDecimal>naturalOrder()
+                    .thenComparingInt(BigDecimal::scale);
+    private static final Comparator<RankedCountry> RANKED_ASCENDING =
+            Comparator.comparing(RankedCountry::vatStandard)
+                    .thenComparing(RankedCountry::position,
+                            Comparator.reverseOrder());
+
+    private final AtomicReference<Snapshot> snapshot;
+    private final VatRatesQueryCache cache =
+            new VatRatesQueryCache(Constants.getQueryCacheCapacity());
 
     public VatRatesList(List<Country> listOfCountries) {
-        this.listOfCountries = listOfCountries;
+        this.snapshot = new AtomicReference<>(new Snapshot(listOfCountries));
     }
 
+    /**
+     * Gets the current list of countries.
+     *
+     * @return unmodifiable snapshot of the list
+     */
     public List<Country> getListOfCountries() {
-        return new ArrayList<>(listOfCountries);
+        return snapshot.get().listOfCountries;
     }
 
+    /**
+     * Replaces the list of countries atomically. Readers see either the old
+     * or the new list, never a partly updated one.
+     *
+     * @param listOfCountries new list of countries, it is copied
+     */
     public void setListOfCountries(List<Country> listOfCountries) {
-        this.listOfCountries = listOfCountries;
+        snapshot.set(new Snapshot(listOfCountries));
+        cache.invalidate();
+    }
+
+    /**
+     * Replaces the list of countries by a list derived from the current one.
+     * If another writer replaces the list in the meantime, the update is
+     * applied again to its list.
+     *
+     * @param update function creating the new list from the current one
+     */
+    public void updateListOfCountries(UnaryOperator<List<Country>> update) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            next = new Snapshot(update.apply(current.listOfCountries));
+        } while (!snapshot.compareAndSet(current, next));
+        cache.invalidate();
+    }
+
+    public void clearListOfCountries() {
+        setListOfCountries(List.of());
     }
 
     public void clearListOfCountries(List<Country> listOfCountries) {
         listOfCountries.clear();
     }
 
+    /**
+     * Gets the index of the current list of countries. The index is built
+     * on the first call and kept until the list is replaced.
+     *
+     * @return index of the list of countries
+     */
+    public VatRatesIndex getIndex() {
+        return snapshot.get().getIndex();
+    }
+
+    /**
+     * Finds a country by its code in the current list of countries
+     * in constant time through the index.
+     *
+     * @param codeOfCountry code of the country
+     * @return the first country with the code, if there is any
+     */
+    public Optional<Country> getCountry(String codeOfCountry) {
+        return Optional.ofNullable(getIndex().getCountry(codeOfCountry));
+    }
+
+    /**
+     * Gets the resolver of rates by category of the current list
+     * of countries. It is built on the first call after the list is set.
+     *
+     * @return resolver of the list of countries
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public VatRateResolver getResolver() {
+        return snapshot.get().getResolver();
+    }
+
+    public VatRatesQueryCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets countries over the passed value and without the special VAT
+     * in the order of the list. Results are cached.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @return unmodifiable filtered list of countries
+     */
+    public List<Country> getByVat(BigDecimal vatStdLimit) {
+        return cache.get(VatRatesQueryCache.QueryType.FILTER_BY_VAT,
+                vatStdLimit,
+                () -> filterByVat(getListOfCountries(), vatStdLimit));
+    }
+
+    /**
+     * Gets countries over the passed value and without the special VAT
+     * in descending order from the index. Results are cached.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @return unmodifiable sorted list of countries
+     */
+    public List<Country> getByVatDescending(BigDecimal vatStdLimit) {
+        return cache.get(VatRatesQueryCache.QueryType.BY_VAT_DESCENDING,
+                vatStdLimit,
+                () -> getIndex().getOverLimitDescending(vatStdLimit));
+    }
+
+    /**
+     * Gets countries not returned by {@link #getByVatDescending(BigDecimal)}
+     * in ascending order of codes from the index. Results are cached.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @return unmodifiable sorted list of other countries
+     */
+    public List<Country> getOthersByCode(BigDecimal vatStdLimit) {
+        return cache.get(VatRatesQueryCache.QueryType.OTHERS_BY_CODE,
+                vatStdLimit, () -> getIndex().getOthersByCode(vatStdLimit));
+    }
+
+    /**
+     * Gets at most k countries over the passed value and without the special
+     * VAT in descending order from the index. Only the boundary of the limit
+     * is searched for, so the time is O(log n).
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @param k maximum number of countries
+     * @return unmodifiable sorted list of countries
+     */
+    public List<Country> getTopByVat(BigDecimal vatStdLimit, int k) {
+        checkCount(k);
+        List<Country> overLimit =
+                getIndex().getOverLimitDescending(vatStdLimit);
+        return overLimit.subList(0, Math.min(k, overLimit.size()));
+    }
+
+    /**
+     * Gets countries without the special VAT whose standard VAT is between
+     * two values including both in descending order from the index.
+     * Both boundaries are found by a binary search, so the time
+     * is O(log n).
+     *
+     * @param vatStdFrom the lowest standard VAT value
+     * @param vatStdTo the highest standard VAT value
+     * @return unmodifiable sorted list of countries
+     */
+    public List<Country> getByVatRangeDescending(BigDecimal vatStdFrom,
+                                                 BigDecimal vatStdTo) {
+        return getIndex().getRangeDescending(vatStdFrom, vatStdTo);
+    }
+
     /**
      * Exports data extracted from a list of countries in a defined file.
      * It partitions the list according to the standard VAT rate:
@@ -52,69 +213,216 @@ public class VatRatesList {
      */
     public static void exportToFile(List<Country> data, BigDecimal vatStdLimit)
             throws VatRatesException {
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
-                new FileWriter(Constants.getResourcesPath()
-                        + "vat-over-" + vatStdLimit + ".txt")))) {
-            Map<Boolean, List<Country>> mapOfCountries =
-                    filterByVatOnePass(data, vatStdLimit);
-            List<Country> listOverLimit = mapOfCountries.get(true);
-            List<Country> sortedListOverLimitDescending =
-                    sortByVatStdDescending(listOverLimit);
-            sortedListOverLimitDescending.forEach(country ->
-                    writer.println(country.getDescriptionVerbose()));
-
-            List<Country> listOfOthers = mapOfCountries.get(false);
-            List<Country> sortedListOfOthers = sortByCode(listOfOthers);
-            writer.println(getStringOfOtherCountries(
-                    sortedListOfOthers, vatStdLimit));
-        } catch (IOException e) {
-            throw new VatRatesException("Chyba při exportu do souboru: "
-                    + e.getLocalizedMessage());
+        VatRatesExporter.exportToFile(new VatRatesIndex(data), vatStdLimit,
+                ExportFormat.TEXT);
+    }
+
+    /**
+     * Exports the current list of countries partitioned by the standard VAT
+     * rate in a file in the resources directory. Rows are streamed from
+     * the index, see {@link VatRatesExporter}.
+     *
+     * @param vatStdLimit VAT standard limit that is used for filtering
+     *                    the list of countries
+     * @param format format of the file
+     * @return path to the exported file
+     * @throws VatRatesException if IOException is thrown
+     */
+    public Path exportToFile(BigDecimal vatStdLimit, ExportFormat format)
+            throws VatRatesException {
+        return VatRatesExporter.exportToFile(getIndex(), vatStdLimit, format);
+    }
+
+    /**
+     * Partitions the current list of countries by several limits at once.
+     * The list is sorted only once, when its index is built, each partition
+     * is then taken from the index. Limits equal in value but written
+     * differently, e.g. 20 and 20.0, are kept as separate entries.
+     *
+     * @param vatStdLimits VAT standard limits used for partitioning
+     * @return sorted partitions of countries by limits in ascending order
+     */
+    public Map<BigDecimal, Map<Boolean, List<Country>>> getPartitionsByVat(
+            Collection<BigDecimal> vatStdLimits) {
+        VatRatesIndex currentIndex = getIndex();
+        Map<BigDecimal, Map<Boolean, List<Country>>> partitions =
+                new TreeMap<>(LIMIT_ORDER);
+        vatStdLimits.forEach(vatStdLimit -> partitions.computeIfAbsent(
+                vatStdLimit, currentIndex::getPartition));
+        return partitions;
+    }
+
+    /**
+     * Exports the current list of countries partitioned by several limits,
+     * one file per limit. The list is sorted only once and the files are
+     * written in parallel, each on its own virtual thread. Every distinct
+     * limit is exported once. Limits equal in value but written differently,
+     * e.g. 20 and 20.0, have files of their own and separate entries.
+     *
+     * @param vatStdLimits VAT standard limits used for partitioning
+     * @param format format of the files
+     * @return paths to the exported files by limits in ascending order
+     * @throws VatRatesException if any of the files cannot be written
+     */
+    public Map<BigDecimal, Path> exportToFiles(
+            Collection<BigDecimal> vatStdLimits, ExportFormat format)
+            throws VatRatesException {
+        VatRatesIndex currentIndex = getIndex();
+        Map<BigDecimal, Future<Path>> futures = new TreeMap<>(LIMIT_ORDER);
+        try (ExecutorService executor =
+                     Executors.newVirtualThreadPerTaskExecutor()) {
+            vatStdLimits.forEach(vatStdLimit -> futures.computeIfAbsent(
+                    vatStdLimit, limit -> executor.submit(() ->
+                            VatRatesExporter.exportToFile(currentIndex,
+                                    limit, format))));
+        }
+        Map<BigDecimal, Path> files = new TreeMap<>(LIMIT_ORDER);
+        for (Map.Entry<BigDecimal, Future<Path>> entry : futures.entrySet()) {
+            try {
+                files.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                throw new VatRatesException(
+                        e.getCause().getLocalizedMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new VatRatesException("Export do souborů přerušen");
+            }
         }
+        return files;
     }
 
+    /**
+     * Imports countries from a file line by line. Each line is split
+     * by the delimiter by hand, see {@link CountryParser}.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @return list of countries in the order of lines of the file
+     * @throws VatRatesException if the file cannot be read or a line is not
+     *                           valid, the message contains the line number
+     */
     public static List<Country> importFromFile(String file, String delimiter)
             throws VatRatesException {
-        List<Country> list = new ArrayList<>();
-        File input = new File(file);
-        long lineNumber = 0L;
-        try (Scanner scanner = new Scanner(input)) {
-            while (scanner.hasNextLine()) {
-                ++lineNumber;
-                String record = scanner.nextLine();
-                list.add(parseCountry(record, delimiter));
+        return VatRatesMetrics.timed("importFromFile", () -> {
+            List<Country> list = new ArrayList<>();
+            long lineNumber = 0L;
+            try (BufferedReader reader =
+                         Files.newBufferedReader(Path.of(file))) {
+                String record;
+                while ((record = reader.readLine()) != null) {
+                    ++lineNumber;
+                    list.add(parseCountry(record, delimiter));
+                }
+            } catch (IOException e) {
+                throw new VatRatesException("Chyba při načítání souboru: "
+                        + e.getLocalizedMessage());
+            } catch (VatRatesException e) {
+                VatRatesMetrics.increment("parseErrors");
+                throw new VatRatesException(e.getLocalizedMessage()
+                        + ", řádek souboru č. " + lineNumber);
             }
-        } catch (FileNotFoundException e) {
-            throw new VatRatesException("Chyba při načítání souboru: "
-                    + e.getLocalizedMessage());
-        } catch (VatRatesException e) {
-            throw new VatRatesException(e.getLocalizedMessage()
-                    + ", řádek souboru č. " + lineNumber);
-        }
-        return list;
+            return list;
+        });
     }
 
-    public static Country parseCountry(String data, String delimiter)
+    /**
+     * Imports countries from a file in parallel, intended for large files.
+     * The file is memory-mapped and parsed in chunks, see
+     * {@link ChunkedImporter}. The result is the same as of
+     * {@link #importFromFile(String, String)}.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @return list of countries in the order of lines of the file
+     * @throws VatRatesException if the file cannot be read or a line is not
+     *                           valid, the message contains the line number
+     */
+    public static List<Country> importFromFileParallel(String file,
+                                                       String delimiter)
             throws VatRatesException {
-        Scanner scanner = new Scanner(data);
-        scanner.useLocale(Constants.getLocale());
-        scanner.useDelimiter(delimiter);
-
-        String codeOfCountry = scanner.next();
-        String nameOfCountry = scanner.next();
-        BigDecimal vatStandard = null;
-        BigDecimal vatReduced = null;
-        try {
-            vatStandard = scanner.nextBigDecimal();
-            vatReduced = scanner.nextBigDecimal();
-        } catch (InputMismatchException e) {
-            throw new VatRatesException("Neplatné číslo: "
-                    + e.getLocalizedMessage());
+        return VatRatesMetrics.timed("importFromFileParallel", () -> {
+            return ChunkedImporter.importFromFile(file, delimiter);
+        });
+    }
+
+    /**
+     * Imports countries from a file skipping invalid lines. Errors of the
+     * invalid lines are collected instead of stopping the import.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @param maxErrors maximum number of errors kept in the result, further
+     *                  errors are only counted
+     * @return countries of the valid lines and errors of the invalid ones
+     * @throws VatRatesException if the file cannot be read
+     */
+    public static ImportResult importFromFileLenient(String file,
+                                                     String delimiter,
+                                                     int maxErrors)
+            throws VatRatesException {
+        checkMaxErrors(maxErrors);
+        return VatRatesMetrics.timed("importFromFileLenient", () -> {
+            List<Country> list = new ArrayList<>();
+            List<ImportError> errors = new ArrayList<>();
+            long errorCount = 0L;
+            long lineNumber = 0L;
+            try (BufferedReader reader =
+                         Files.newBufferedReader(Path.of(file))) {
+                String record;
+                while ((record = reader.readLine()) != null) {
+                    ++lineNumber;
+                    try {
+                        list.add(parseCountry(record, delimiter));
+                    } catch (VatRatesParseException e) {
+                        VatRatesMetrics.increment("parseErrors");
+                        if (errors.size() < maxErrors) {
+                            errors.add(new ImportError(lineNumber,
+                                    e.getColumn(), e.getLocalizedMessage()));
+                        }
+                        ++errorCount;
+                    }
+                }
+            } catch (IOException e) {
+                throw new VatRatesException("Chyba při načítání souboru: "
+                        + e.getLocalizedMessage());
+            }
+            return new ImportResult(list, errors, errorCount);
+        });
+    }
+
+    /**
+     * Imports countries from a file in parallel skipping invalid lines, see
+     * {@link #importFromFileParallel(String, String)}. The result is the same
+     * as of {@link #importFromFileLenient(String, String, int)}.
+     *
+     * @param file path to the file
+     * @param delimiter delimiter of fields
+     * @param maxErrors maximum number of errors kept in the result, further
+     *                  errors are only counted
+     * @return countries of the valid lines and errors of the invalid ones
+     * @throws VatRatesException if the file cannot be read
+     */
+    public static ImportResult importFromFileLenientParallel(String file,
+                                                             String delimiter,
+                                                             int maxErrors)
+            throws VatRatesException {
+        checkMaxErrors(maxErrors);
+        return VatRatesMetrics.timed("importFromFileLenientParallel", () -> {
+            return ChunkedImporter.importFromFileLenient(file, delimiter,
+                    maxErrors);
+        });
+    }
+
+    private static void checkMaxErrors(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException(
+                    "Záporný počet chyb: " + maxErrors);
         }
-        boolean hasVatSpecial = scanner.nextBoolean();
+    }
 
-        return new Country(codeOfCountry, nameOfCountry, vatStandard,
-                vatReduced, hasVatSpecial);
+    public static Country parseCountry(String data, String delimiter)
+            throws VatRatesParseException {
+        return CountryParser.parseCountry(data, 0, data.length(), delimiter);
     }
 
     /**
@@ -126,13 +434,15 @@ public class VatRatesList {
      */
     public static List<Country> filterByVat(List<Country> listOfCountries,
                                             BigDecimal vatStdLimit) {
-        return listOfCountries
-                .stream()
-                .filter(country ->
-                        country.getVatStandard()
-                                .compareTo(vatStdLimit) > 0
-                        && !country.hasVatSpecial())
-                .toList();
+        return VatRatesMetrics.timed("filterByVat", () -> {
+            return listOfCountries
+                    .stream()
+                    .filter(country ->
+                            country.getVatStandard()
+                                    .compareTo(vatStdLimit) > 0
+                            && !country.hasVatSpecial())
+                    .toList();
+        });
     }
 
     /**
@@ -144,11 +454,64 @@ public class VatRatesList {
     public static Map<Boolean, List<Country>> filterByVatOnePass(
             List<Country> listOfCountries,
             BigDecimal vatStdLimit) {
-        return listOfCountries
-                .stream()
-                .collect(Collectors.groupingBy(country ->
-                        country.getVatStandard().compareTo(vatStdLimit) > 0
-                        && !country.hasVatSpecial()));
+        return VatRatesMetrics.timed("filterByVatOnePass", () -> {
+            return listOfCountries
+                    .stream()
+                    .collect(Collectors.groupingBy(country ->
+                            country.getVatStandard().compareTo(vatStdLimit) > 0
+                            && !country.hasVatSpecial()));
+        });
+    }
+
+    /**
+     * Filters a list of compact countries. Only countries over the submitted
+     * value and without the special VAT are accepted. Rates are compared
+     * as basis points.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @return filtered list of countries
+     */
+    public static List<CompactCountry> filterCompactByVat(
+            List<CompactCountry> listOfCountries, BigDecimal vatStdLimit) {
+        return VatRatesMetrics.timed("filterCompactByVat", () -> {
+            int limit = CompactCountry.limitToBasisPoints(vatStdLimit);
+            return listOfCountries
+                    .stream()
+                    .filter(country -> country.isOverLimit(limit))
+                    .toList();
+        });
+    }
+
+    /**
+     * Filters a list of compact countries in one pass. Partitions a list into
+     * two lists. Boolean keys correspond to them in a map.
+     *
+     * @return map of partitioned lists of countries
+     */
+    public static Map<Boolean, List<CompactCountry>> filterCompactByVatOnePass(
+            List<CompactCountry> listOfCountries,
+            BigDecimal vatStdLimit) {
+        return VatRatesMetrics.timed("filterCompactByVatOnePass", () -> {
+            int limit = CompactCountry.limitToBasisPoints(vatStdLimit);
+            return listOfCountries
+                    .stream()
+                    .collect(Collectors.partitioningBy(country ->
+                            country.isOverLimit(limit)));
+        });
+    }
+
+    /**
+     * Converts a list of countries to compact countries.
+     *
+     * @throws IllegalArgumentException if a code of a country is not two
+     *                                  uppercase letters
+     * @throws ArithmeticException if a rate has more than two decimal places
+     */
+    public static List<CompactCountry> toCompactList(
+            List<Country> listOfCountries) {
+        return listOfCountries.stream()
+                .map(CompactCountry::of)
+                .toList();
     }
 
     /**
@@ -158,31 +521,153 @@ public class VatRatesList {
      * @return sorted list of countries in ascending order
      */
     public static List<Country> sortByCode(List<Country> listOfCountries) {
-        return listOfCountries.stream()
-                .sorted(Comparator.comparing(Country::getCodeOfCountry))
-                .toList();
+        return VatRatesMetrics.timed("sortByCode", () -> {
+            return listOfCountries.stream()
+                    .sorted(Comparator.comparing(Country::getCodeOfCountry))
+                    .toList();
+        });
     }
 
     public static List<Country> sortByVatStdDescending(
             List<Country> listOfCountries) {
-        return listOfCountries.stream()
-                .sorted(Comparator.comparing(Country::getVatStandard)
-                        .reversed()).toList();
+        return VatRatesMetrics.timed("sortByVatStdDescending", () -> {
+            return listOfCountries.stream()
+                    .sorted(Comparator.comparing(Country::getVatStandard)
+                            .reversed()).toList();
+        });
+    }
+
+    /**
+     * Gets at most k countries over the passed value and without the special
+     * VAT with the highest standard VAT, the same as the first k countries
+     * of {@code sortByVatStdDescending(filterByVat(list, vatStdLimit))}.
+     *
+     * @param vatStdLimit the standard VAT value used for filtering the list
+     * @param k maximum number of countries
+     * @return sorted list of countries
+     */
+    public static List<Country> getTopByVat(List<Country> listOfCountries,
+                                            BigDecimal vatStdLimit, int k) {
+        return getTopByVat(listOfCountries, k,
+                country -> !country.hasVatSpecial()
+                        && country.getVatStandard()
+                                .compareTo(vatStdLimit) > 0);
+    }
+
+    /**
+     * Gets at most k countries accepted by a predicate with the highest
+     * standard VAT in descending order. Countries with the same VAT keep
+     * their order in the list, as {@link #sortByVatStdDescending} does.
+     * Only the best k countries are held in a bounded heap, so the time
+     * is O(n log k) and no list of all accepted countries is created.
+     *
+     * @param k maximum number of countries
+     * @param predicate condition on other values, e.g. on the reduced VAT
+     *                  or the special VAT
+     * @return sorted list of countries
+     */
+    public static List<Country> getTopByVat(List<Country> listOfCountries,
+                                            int k,
+                                            Predicate<Country> predicate) {
+        checkCount(k);
+        return VatRatesMetrics.timed("getTopByVat", () -> {
+            if (k == 0) {
+                return List.of();
+            }
+            PriorityQueue<RankedCountry> top =
+                    new PriorityQueue<>(Math.max(1,
+                            Math.min(k, listOfCountries.size())),
+                            RANKED_ASCENDING);
+            int position = 0;
+            for (Country country : listOfCountries) {
+                ++position;
+                if (!predicate.test(country)) {
+                    continue;
+                }
+                BigDecimal vatStandard = country.getVatStandard();
+                if (top.size() < k) {
+                    top.add(new RankedCountry(country, vatStandard,
+                            position));
+                } else if (vatStandard.compareTo(top.peek().vatStandard())
+                        > 0) {
+                    top.poll();
+                    top.add(new RankedCountry(country, vatStandard,
+                            position));
+                }
+            }
+            RankedCountry[] ranked = top.toArray(new RankedCountry[0]);
+            Arrays.sort(ranked, RANKED_ASCENDING.reversed());
+            return Arrays.stream(ranked).map(RankedCountry::country).toList();
+        });
+    }
+
+    /**
+     * Gets countries whose standard VAT is between two values including
+     * both in the order of the list.
+     *
+     * @param vatStdFrom the lowest standard VAT value
+     * @param vatStdTo the highest standard VAT value
+     * @return filtered list of countries
+     */
+    public static List<Country> getByVatRange(List<Country> listOfCountries,
+                                              BigDecimal vatStdFrom,
+                                              BigDecimal vatStdTo) {
+        return getByVatRange(listOfCountries, vatStdFrom, vatStdTo,
+                country -> true);
+    }
+
+    /**
+     * Gets countries accepted by a predicate whose standard VAT is between
+     * two values including both in the order of the list. The list is
+     * filtered in one pass.
+     *
+     * @param vatStdFrom the lowest standard VAT value
+     * @param vatStdTo the highest standard VAT value
+     * @param predicate condition on other values, e.g. on the reduced VAT
+     *                  or the special VAT
+     * @return filtered list of countries
+     */
+    public static List<Country> getByVatRange(List<Country> listOfCountries,
+                                              BigDecimal vatStdFrom,
+                                              BigDecimal vatStdTo,
+                                              Predicate<Country> predicate) {
+        return VatRatesMetrics.timed("getByVatRange", () -> {
+            return listOfCountries.stream()
+                    .filter(country -> {
+                        BigDecimal vatStandard = country.getVatStandard();
+                        return vatStandard.compareTo(vatStdFrom) >= 0
+                                && vatStandard.compareTo(vatStdTo) <= 0
+                                && predicate.test(country);
+                    })
+                    .toList();
+        });
+    }
+
+    private static void checkCount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Záporný počet zemí: " + k);
+        }
     }
 
     /**
-     * Subtracts a list of countries from the initial one.
+     * Subtracts a list of countries from the initial one. Countries are
+     * matched by their values, see {@link Country#equals(Object)}, through
+     * a hash set, so the time is linear and rows sharing a code with
+     * a subtracted country are kept.
      *
      * @param listOfCountries list of countries that needs to be filtered
      * @param subList list of countries that is to be subtracted
-     * @return list of countries that are not contained in the
-     *         initial list
+     * @return list of countries that are not contained in the subtracted
+     *         list
      */
     public static List<Country> subtractFilteredVat(
             List<Country> listOfCountries, List<Country> subList) {
-        return listOfCountries.stream()
-                .filter(country -> !subList.contains(country))
-                .toList();
+        return VatRatesMetrics.timed("subtractFilteredVat", () -> {
+            Set<Country> subtracted = new HashSet<>(subList);
+            return listOfCountries.stream()
+                    .filter(country -> !subtracted.contains(country))
+                    .toList();
+        });
     }
 
     /**
@@ -197,13 +682,67 @@ public class VatRatesList {
     static String getStringOfOtherCountries(
             List<Country> listOfCountries, BigDecimal vatStdLimit) {
 
-        String vatStdLimitToStr =
-                Constants.getNumberFormat().format(vatStdLimit);
-        return "====================\n"
-                + "Sazba VAT " + vatStdLimitToStr + " % nebo nižší nebo "
-                + "používají speciální sazbu: "
+        return getHeadingOfOtherCountries(vatStdLimit)
                 +  listOfCountries.stream()
                 .map(Country::getCodeOfCountry)
                 .collect(Collectors.joining(", "));
     }
+
+    /**
+     * Gets the beginning of the String of other countries that precedes
+     * their codes.
+     *
+     * @param vatStdLimit standard VAT that is a part of the resulting String
+     * @return heading of the String of other countries
+     */
+    static String getHeadingOfOtherCountries(BigDecimal vatStdLimit) {
+        String vatStdLimitToStr = CountryParser.formatRate(vatStdLimit);
+        return "====================\n"
+                + "Sazba VAT " + vatStdLimitToStr + " % nebo nižší nebo "
+                + "používají speciální sazbu: ";
+    }
+
+    /**
+     * Country ranked by its standard VAT and its position in the list.
+     */
+    private record RankedCountry(Country country, BigDecimal vatStandard,
+                                 int position) {
+    }
+
+    /**
+     * Immutable list of countries with its index built lazily. Concurrent
+     * first calls may build the index more than once, but all of them see
+     * an equal one. An {@link OffHeapCountryList} is already immutable,
+     * so it is kept instead of being copied to the heap.
+     */
+    private static class Snapshot {
+        private final List<Country> listOfCountries;
+        private volatile VatRatesIndex index;
+        private volatile VatRateResolver resolver;
+
+        Snapshot(List<Country> listOfCountries) {
+            this.listOfCountries =
+                    listOfCountries instanceof OffHeapCountryList
+                            ? listOfCountries
+                            : List.copyOf(listOfCountries);
+        }
+
+        VatRatesIndex getIndex() {
+            VatRatesIndex result = index;
+            if (result == null) {
+                result = new VatRatesIndex(listOfCountries);
+                index = result;
+            }
+            return result;
+        }
+
+        VatRateResolver getResolver() {
+            VatRateResolver result = resolver;
+            if (result == null) {
+                result = VatRateResolver.of(listOfCountries);
+                resolver = result;
+            }
+            return result;
+        }
+    }
 }
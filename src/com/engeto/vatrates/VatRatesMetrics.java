@@ -0,0 +1,228 @@
+package com.engeto.vatrates;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of operations over lists of countries.
+ * Operations are timed by {@link #timed(String, Operation)}, which is also
+ * the only place the counter "exceptions" is increased: an exception is
+ * counted once, when it ends the outermost timed operation of a thread.
+ * Timed operations are also emitted as JFR events. Metrics are enabled
+ * by the system property "vatrates.metrics=true", otherwise operations
+ * are just run and nothing is recorded or allocated.
+ */
+public class VatRatesMetrics {
+    private static final boolean ENABLED =
+            Boolean.getBoolean("vatrates.metrics");
+    private static final ThreadLocal<Timer> CURRENT_TIMER =
+            new ThreadLocal<>();
+
+    private static final Map<String, LongAdder> COUNTERS =
+            new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * JFR event of a timed operation.
+     */
+    @Name("com.engeto.vatrates.Operation")
+    @Label("VAT Rates Operation")
+    @Category("VAT Rates")
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+    }
+
+    /**
+     * Operation returning a value.
+     */
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Operation returning no value.
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Measures an operation from its start until it is stopped. Timers
+     * of a thread are nested, the outer one is restored when an inner one
+     * is stopped.
+     */
+    private static final class Timer {
+        private final String operation;
+        private final Timer outer;
+        private final long start;
+        private final OperationEvent event;
+
+        private Timer(String operation) {
+            this.operation = operation;
+            this.outer = CURRENT_TIMER.get();
+            CURRENT_TIMER.set(this);
+            this.event = new OperationEvent();
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        private void stop(boolean isFailed) {
+            HISTOGRAMS.computeIfAbsent(operation,
+                    key -> new LatencyHistogram())
+                    .record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
+            }
+            if (outer == null) {
+                CURRENT_TIMER.remove();
+                if (isFailed) {
+                    increment("exceptions");
+                }
+            } else {
+                CURRENT_TIMER.set(outer);
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Runs an operation and records its latency under its name, also
+     * if it throws.
+     *
+     * @param operation name of the operation
+     * @param body the operation
+     * @return result of the operation
+     */
+    public static <T, E extends Exception> T timed(String operation,
+                                                   Operation<T, E> body)
+            throws E {
+        if (!ENABLED) {
+            return body.run();
+        }
+        Timer timer = new Timer(operation);
+        boolean isFailed = true;
+        try {
+            T result = body.run();
+            isFailed = false;
+            return result;
+        } finally {
+            timer.stop(isFailed);
+        }
+    }
+
+    /**
+     * Runs an operation returning no value and records its latency,
+     * see {@link #timed(String, Operation)}.
+     */
+    public static <E extends Exception> void timed(String operation,
+                                                   Action<E> body)
+            throws E {
+        timed(operation, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Increments a counter.
+     *
+     * @param counter name of the counter
+     */
+    public static void increment(String counter) {
+        if (ENABLED) {
+            COUNTERS.computeIfAbsent(counter, key -> new LongAdder())
+                    .increment();
+        }
+    }
+
+    public static long getCount(String counter) {
+        LongAdder adder = COUNTERS.get(counter);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    public static LatencyHistogram getHistogram(String operation) {
+        return HISTOGRAMS.get(operation);
+    }
+
+    public static void reset() {
+        COUNTERS.clear();
+        HISTOGRAMS.clear();
+    }
+
+    /**
+     * Gets a snapshot of all metrics as text, one metric per line.
+     * Latencies are in microseconds.
+     */
+    public static String toText() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(COUNTERS).forEach((name, adder) -> text.append(name)
+                .append(' ').append(adder.sum()).append('\n'));
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> text
+                .append(name)
+                .append(" count=").append(histogram.getCount())
+                .append(" mean=").append(micros(histogram.getMean()))
+                .append(" p50=").append(micros(histogram.getPercentile(50)))
+                .append(" p99=").append(micros(histogram.getPercentile(99)))
+                .append(" max=").append(micros(histogram.getMax()))
+                .append('\n'));
+        return text.toString();
+    }
+
+    /**
+     * Gets a snapshot of all metrics as a JSON object. Latencies are
+     * in microseconds.
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        boolean isFirst = true;
+        for (Map.Entry<String, LongAdder> entry
+                : new TreeMap<>(COUNTERS).entrySet()) {
+            if (!isFirst) {
+                json.append(',');
+            }
+            JsonFormat.appendString(json, entry.getKey());
+            json.append(':').append(entry.getValue().sum());
+            isFirst = false;
+        }
+        json.append("},\"latencies\":{");
+        isFirst = true;
+        for (Map.Entry<String, LatencyHistogram> entry
+                : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (!isFirst) {
+                json.append(',');
+            }
+            JsonFormat.appendString(json, entry.getKey());
+            json.append(":{\"count\":").append(histogram.getCount())
+                    .append(",\"mean\":").append(micros(histogram.getMean()))
+                    .append(",\"p50\":")
+                    .append(micros(histogram.getPercentile(50)))
+                    .append(",\"p99\":")
+                    .append(micros(histogram.getPercentile(99)))
+                    .append(",\"max\":").append(micros(histogram.getMax()))
+                    .append('}');
+            isFirst = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static long micros(double nanos) {
+        return Math.round(nanos / 1_000);
+    }
+}
@@ -0,0 +1,23 @@
+package com.engeto.vatrates;
+
+/**
+ * Exception of an invalid field of a record, it holds the number
+ * of the column of the field.
+ */
+public class VatRatesParseException extends VatRatesException {
+    private static final long serialVersionUID = 1L;
+
+    private final int column;
+
+    public VatRatesParseException(String msg, int column) {
+        super(msg);
+        this.column = column;
+    }
+
+    /**
+     * Gets the number of the column of the invalid field starting from 1.
+     */
+    public int getColumn() {
+        return column;
+    }
+}
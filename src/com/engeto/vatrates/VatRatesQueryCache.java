@@ -0,0 +1,113 @@
+package com.engeto.vatrates;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of results of queries over a list of countries. Results are
+ * keyed by the type of the query and the normalized VAT limit, so 20 and
+ * 20.0 share an entry. The least recently used entry is evicted when
+ * the capacity is exceeded. Cached lists are unmodifiable and can be shared
+ * across threads. Hits take no lock, only storing a new result does.
+ */
+public class VatRatesQueryCache {
+    public enum QueryType {
+        FILTER_BY_VAT,
+        BY_VAT_DESCENDING,
+        OTHERS_BY_CODE
+    }
+
+    private record Key(QueryType queryType, BigDecimal vatStdLimit) {
+    }
+
+    private static class Entry {
+        private final List<Country> result;
+        private volatile long lastAccess;
+
+        Entry(List<Country> result) {
+            this.result = result;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    private final int capacity;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long generation;
+
+    public VatRatesQueryCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets a cached result or computes it by the passed query. The query runs
+     * outside of the lock. Its result is not stored if the cache was
+     * invalidated in the meantime, so stale data never gets cached.
+     *
+     * @param queryType type of the query
+     * @param vatStdLimit VAT limit of the query
+     * @param query computation of the result
+     * @return unmodifiable result of the query
+     */
+    public List<Country> get(QueryType queryType, BigDecimal vatStdLimit,
+                             Supplier<List<Country>> query) {
+        Key key = new Key(queryType, vatStdLimit.stripTrailingZeros());
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastAccess = System.nanoTime();
+            hits.increment();
+            return entry.result;
+        }
+        long queryGeneration = generation;
+        misses.increment();
+        List<Country> result = List.copyOf(query.get());
+        synchronized (this) {
+            if (queryGeneration == generation) {
+                entries.put(key, new Entry(result));
+                if (entries.size() > capacity) {
+                    evictLeastRecentlyUsed();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all entries. Must be called whenever the data are replaced.
+     */
+    public synchronized void invalidate() {
+        ++generation;
+        entries.clear();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Key eldest = null;
+        long eldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().lastAccess < eldestAccess) {
+                eldest = entry.getKey();
+                eldestAccess = entry.getValue().lastAccess;
+            }
+        }
+        entries.remove(eldest);
+    }
+
+    //region Getters
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+    //endregion
+}
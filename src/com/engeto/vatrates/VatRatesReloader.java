@@ -0,0 +1,139 @@
+package com.engeto.vatrates;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the directory of a rate file and re-imports the file whenever
+ * it changes. If the imported countries differ from the live
+ * {@link VatRatesList}, the whole list is replaced, the list swaps its
+ * snapshot atomically, so readers are never stalled. The index and cached
+ * queries of the list are rebuilt for the new snapshot on demand. Events
+ * are debounced, as a file is usually written in several steps, still
+ * writers should preferably replace the file atomically by moving
+ * a complete file in its place.
+ */
+public final class VatRatesReloader implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger("VAT rates");
+    private static final long DEBOUNCE_MILLIS = 200L;
+
+    private final VatRatesList vatRatesList;
+    private final Path file;
+    private final String delimiter;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Creates a reloader and starts watching the file.
+     *
+     * @param vatRatesList live list of countries that is updated
+     * @param file path to the rate file
+     * @param delimiter delimiter of fields
+     * @throws VatRatesException if the directory cannot be watched
+     */
+    public VatRatesReloader(VatRatesList vatRatesList, String file,
+                            String delimiter) throws VatRatesException {
+        this.vatRatesList = vatRatesList;
+        this.file = Path.of(file).toAbsolutePath();
+        this.delimiter = delimiter;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.file.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při sledování souboru: "
+                    + e.getLocalizedMessage());
+        }
+        this.thread = new Thread(this::watch, "vat-rates-reloader");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Re-imports the file and replaces the list if the countries differ.
+     *
+     * @return whether the list was replaced
+     * @throws VatRatesException if the file cannot be imported, the list
+     *                           is left unchanged
+     */
+    public boolean reload() throws VatRatesException {
+        long start = System.nanoTime();
+        List<Country> importedList =
+                VatRatesList.importFromFile(file.toString(), delimiter);
+        boolean isChanged =
+                !importedList.equals(vatRatesList.getListOfCountries());
+        if (isChanged) {
+            vatRatesList.setListOfCountries(importedList);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        LOGGER.info("Soubor " + file + " znovu načten za " + millis
+                + " ms, " + (isChanged ? "počet zemí: " + importedList.size()
+                : "beze změny"));
+        return isChanged;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean isChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        isChanged = true;
+                    }
+                }
+                key.reset();
+                if (isChanged) {
+                    Thread.sleep(DEBOUNCE_MILLIS);
+                    discardPendingEvents();
+                    reloadQuietly();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // The reloader was closed.
+        }
+    }
+
+    private void discardPendingEvents() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (VatRatesException e) {
+            LOGGER.log(Level.WARNING, e.getClass().getName() + ": "
+                    + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    @Override
+    public void close() throws VatRatesException {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při ukončení sledování "
+                    + "souboru: " + e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.engeto.vatrates;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP service answering queries over a list of countries in JSON.
+ * Every request is handled on its own virtual thread. Endpoints:
+ * - GET /countries - all countries, "?sort=code" sorts them by code;
+ * - GET /countries/{code} - a country found by its code;
+ * - GET /filter?vat={limit} - countries over the limit without the special
+ *   VAT, see {@link VatRatesList#filterByVat};
+ * - GET /partition?vat={limit} - countries partitioned by the limit,
+ *   see {@link VatRatesList#filterByVatOnePass};
+ * - GET /metrics - snapshot of {@link VatRatesMetrics}.
+ * The limit may be written with a decimal comma or point. The server listens
+ * on the loopback address unless another address is passed.
+ */
+public class VatRatesServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger("VAT rates");
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    private final VatRatesList vatRatesList;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates and starts a server listening on the loopback address.
+     *
+     * @param vatRatesList list of countries that is queried
+     * @param port port to listen on, 0 chooses any free port
+     * @throws VatRatesException if the server cannot be started
+     */
+    public VatRatesServer(VatRatesList vatRatesList, int port)
+            throws VatRatesException {
+        this(vatRatesList, Constants.getServerAddress(), port);
+    }
+
+    /**
+     * Creates and starts a server.
+     *
+     * @param vatRatesList list of countries that is queried
+     * @param address address to listen on, the wildcard address makes
+     *                the server reachable from the whole network
+     * @param port port to listen on, 0 chooses any free port
+     * @throws VatRatesException if the server cannot be started
+     */
+    public VatRatesServer(VatRatesList vatRatesList, InetAddress address,
+                          int port) throws VatRatesException {
+        this.vatRatesList = vatRatesList;
+        try {
+            this.server = HttpServer.create(
+                    new InetSocketAddress(address, port), 0);
+        } catch (IOException e) {
+            throw new VatRatesException("Chyba při spuštění serveru: "
+                    + e.getLocalizedMessage());
+        }
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/countries", this::handleCountries);
+        server.createContext("/filter", this::handleFilter);
+        server.createContext("/partition", this::handlePartition);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    public InetAddress getAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleCountries(HttpExchange exchange) throws IOException {
+        if (!isGet(exchange)) {
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String codeOfCountry = path.substring("/countries".length());
+        if (codeOfCountry.isEmpty() || codeOfCountry.equals("/")) {
+            boolean isSortedByCode = "code".equals(
+                    getQueryParameters(exchange).get("sort"));
+            List<Country> listOfCountries = isSortedByCode
+                    ? vatRatesList.getIndex().getSortedByCode()
+                    : vatRatesList.getListOfCountries();
+            send(exchange, 200, toJson(listOfCountries));
+            return;
+        }
+        Optional<Country> country = codeOfCountry.startsWith("/")
+                ? vatRatesList.getCountry(codeOfCountry.substring(1))
+                : Optional.empty();
+        if (country.isEmpty()) {
+            sendError(exchange, 404, "Země nenalezena");
+            return;
+        }
+        StringBuilder json = new StringBuilder();
+        JsonFormat.appendCountry(json, country.get());
+        send(exchange, 200, json.toString());
+    }
+
+    private void handleFilter(HttpExchange exchange) throws IOException {
+        if (!isGet(exchange)) {
+            return;
+        }
+        BigDecimal vatStdLimit = getVatStdLimit(exchange);
+        if (vatStdLimit != null) {
+            send(exchange, 200, toJson(vatRatesList.getByVat(vatStdLimit)));
+        }
+    }
+
+    private void handlePartition(HttpExchange exchange) throws IOException {
+        if (!isGet(exchange)) {
+            return;
+        }
+        BigDecimal vatStdLimit = getVatStdLimit(exchange);
+        if (vatStdLimit == null) {
+            return;
+        }
+        Map<Boolean, List<Country>> mapOfCountries =
+                VatRatesList.filterByVatOnePass(
+                        vatRatesList.getListOfCountries(), vatStdLimit);
+        send(exchange, 200, "{\"overLimit\":"
+                + toJson(mapOfCountries.getOrDefault(true, List.of()))
+                + ",\"others\":"
+                + toJson(mapOfCountries.getOrDefault(false, List.of()))
+                + "}");
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (isGet(exchange)) {
+            send(exchange, 200, VatRatesMetrics.toJson());
+        }
+    }
+
+    /**
+     * Gets the limit from the "vat" query parameter. Sends an error response
+     * if it is missing or invalid.
+     *
+     * @return limit or null if an error was sent
+     */
+    private static BigDecimal getVatStdLimit(HttpExchange exchange)
+            throws IOException {
+        String vat = getQueryParameters(exchange).get("vat");
+        if (vat == null || vat.isBlank()) {
+            sendError(exchange, 400, "Chybí parametr vat");
+            return null;
+        }
+        try {
+            return VatRates.parseVatStdLimit(vat);
+        } catch (VatRatesException e) {
+            sendError(exchange, 400, e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, String> getQueryParameters(
+            HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(
+                        URLDecoder.decode(parameter.substring(0, separator),
+                                StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1),
+                                StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static boolean isGet(HttpExchange exchange) throws IOException {
+        if ("GET".equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET");
+        sendError(exchange, 405, "Povolena je pouze metoda GET");
+        return false;
+    }
+
+    private static String toJson(List<Country> listOfCountries) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < listOfCountries.size(); ++i) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonFormat.appendCountry(json, listOfCountries.get(i));
+        }
+        return json.append(']').toString();
+    }
+
+    private static void sendError(HttpExchange exchange, int status,
+                                  String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        JsonFormat.appendString(json, message);
+        send(exchange, status, json.append('}').toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Stops the server immediately.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * Serves the countries of the input file on the port and address from
+     * {@link Constants} or on the port passed as the first argument
+     * and the address or host name passed as the second one. The input file
+     * is reloaded whenever it changes.
+     */
+    public static void main(String[] args) {
+        try {
+            int port = args.length > 0 ? Integer.parseInt(args[0])
+                    : Constants.getServerPort();
+            InetAddress address = args.length > 1
+                    ? InetAddress.getByName(args[1])
+                    : Constants.getServerAddress();
+            VatRatesList vatRatesList = new VatRatesList(VatRatesList
+                    .importFromFile(Constants.getInputFile(),
+                            Constants.getDelimiter()));
+            new VatRatesReloader(vatRatesList, Constants.getInputFile(),
+                    Constants.getDelimiter());
+            VatRatesServer server =
+                    new VatRatesServer(vatRatesList, address, port);
+            LOGGER.info("Server naslouchá na adrese "
+                    + server.getAddress().getHostAddress() + ", portu "
+                    + server.getPort());
+        } catch (VatRatesException | NumberFormatException
+                 | UnknownHostException e) {
+            LOGGER.log(Level.WARNING, e.getClass().getName() + ": "
+                    + e.getLocalizedMessage());
+        }
+    }
+}